@@ -38,6 +38,9 @@ public class ActivityResponseDto {
 
     private Map<String, Object> additionalMetrics;
 
+    // Version of the activity this response was read at; ai-service stores it with the recommendation
+    private Long version;
+
 
     public Activity toEntity() {
         return Activity.builder()
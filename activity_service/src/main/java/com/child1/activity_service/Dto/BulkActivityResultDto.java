@@ -0,0 +1,34 @@
+package com.child1.activity_service.Dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one element of a bulk request, matched to the request by {@code index}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkActivityResultDto {
+
+    public enum Status {
+        CREATED,
+        INVALID,
+        FAILED
+    }
+
+    private int index;
+    private Status status;
+    private ActivityResponseDto activity;
+    private String error;
+
+    public static BulkActivityResultDto created(int index, ActivityResponseDto activity) {
+        return new BulkActivityResultDto(index, Status.CREATED, activity, null);
+    }
+
+    public static BulkActivityResultDto rejected(int index, Status status, String error) {
+        return new BulkActivityResultDto(index, status, null, error);
+    }
+}
@@ -0,0 +1,21 @@
+package com.child1.activity_service.Dto;
+
+
+import com.child1.activity_service.Model.ActivitType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DailyActivityStatsDto {
+
+    private LocalDate day;
+    private ActivitType activityType;
+    private long count;
+    private long totalCalories;
+    private long totalDuration;
+}
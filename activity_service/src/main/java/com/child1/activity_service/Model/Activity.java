@@ -10,6 +10,9 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -17,8 +20,14 @@ import java.util.Map;
 
 
 @Document(collection = "activities")
+// One index per ActivityRepo access path; lookups by id + userId are served by the _id index.
+@CompoundIndexes({
+        @CompoundIndex(name = "user_start_time", def = "{'userId': 1, 'startTime': -1}"),
+        @CompoundIndex(name = "user_calories", def = "{'userId': 1, 'caloriesBurned': -1}"),
+        @CompoundIndex(name = "user_duration", def = "{'userId': 1, 'duration': -1}")
+})
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 public class Activity {
@@ -39,6 +48,10 @@ public class Activity {
     @LastModifiedDate
     private LocalDateTime updatedAt;
 
+    // Bumped on every save; carried in messages so consumers can drop stale ones
+    @Version
+    private Long version;
+
 
     public void updateFromDto(ActivityResponseDto response) {
         this.activityType = response.getActivityType();
@@ -0,0 +1,37 @@
+package com.child1.activity_service.Model;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+
+/**
+ * Per-user, per-day, per-type totals kept in step with the activities collection, so range
+ * stats read one small document per active day instead of the raw history.
+ *
+ * {@code day} is the ISO date ({@code yyyy-MM-dd}) of the activity's start time; stored as a
+ * string so it sorts and compares the same way in queries and in the rebuild aggregation.
+ */
+@Document(collection = "activity_daily_rollups")
+@CompoundIndex(name = "user_day_type", def = "{'userId': 1, 'day': 1, 'activityType': 1}", unique = true)
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActivityDailyRollup {
+    @Id
+    private String id;
+
+    private Long userId;
+    private String day;
+    private ActivitType activityType;
+
+    private long count;
+    private long totalCalories;
+    private long totalDuration;
+}
@@ -3,10 +3,83 @@ package com.child1.activity_service.config;
 
 
 
+import com.child1.activity_service.Model.Activity;
+import com.child1.activity_service.Model.ActivityDailyRollup;
+import com.child1.activity_service.outbox.OutboxEvent;
+import com.child1.activity_service.service.ActivityRollupService;
+import org.bson.Document;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.List;
 
 @Configuration
 @EnableMongoAuditing
 public class MongoConfig {
+
+    // Collections whose @CompoundIndexes are created on startup (auto-index-creation is off by default)
+    static final List<Class<?>> INDEXED_DOCUMENTS = List.of(Activity.class, ActivityDailyRollup.class, OutboxEvent.class);
+
+    static final String MIGRATIONS_COLLECTION = "migrations";
+
+    @Bean
+    @Order(0)
+    public ApplicationRunner mongoIndexBootstrap(MongoTemplate mongoTemplate) {
+        return args -> ensureIndexes(mongoTemplate);
+    }
+
+    // Activities saved before versioning have no version; without one a save would be treated as an insert
+    @Bean
+    @Order(0)
+    public ApplicationRunner activityVersionBackfill(MongoTemplate mongoTemplate) {
+        return args -> runOnce(mongoTemplate, "activity-version-backfill",
+                () -> mongoTemplate.updateMulti(Query.query(Criteria.where("version").is(null)),
+                        new Update().set("version", 0L), Activity.class));
+    }
+
+    // Commits an activity and its outbox event together; needs MongoDB running as a replica set
+    @Bean
+    @ConditionalOnProperty(name = "activity.outbox.transactional", havingValue = "true")
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+
+    // Backfills activity_daily_rollups from the raw history, e.g. after the first deploy of rollups
+    @Bean
+    @Order(1)
+    @ConditionalOnProperty(name = "activity.rollups.rebuild-on-startup", havingValue = "true")
+    public ApplicationRunner rollupRebuild(ActivityRollupService rollupService) {
+        return args -> rollupService.rebuild(null);
+    }
+
+    // Skips the migration once its marker is in the migrations collection; it is recorded only after it completed
+    static void runOnce(MongoTemplate mongoTemplate, String migration, Runnable body) {
+        if (mongoTemplate.exists(Query.query(Criteria.where("_id").is(migration)), MIGRATIONS_COLLECTION)) {
+            return;
+        }
+        body.run();
+        mongoTemplate.save(new Document("_id", migration).append("appliedAt", Instant.now()), MIGRATIONS_COLLECTION);
+    }
+
+    public static void ensureIndexes(MongoTemplate mongoTemplate) {
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> document : INDEXED_DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(document);
+            resolver.resolveIndexFor(document).forEach(indexOps::createIndex);
+        }
+    }
 }
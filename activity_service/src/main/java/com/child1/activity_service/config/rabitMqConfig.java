@@ -1,10 +1,7 @@
 package com.child1.activity_service.config;
 
 
-import org.springframework.amqp.core.Binding;
-import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.DirectExchange;
-import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.context.annotation.Bean;
@@ -13,21 +10,13 @@ import org.springframework.context.annotation.Configuration;
 @Configuration
 public class rabitMqConfig {
 
-    @Bean
-    public Queue activityQueue() {
-        return new Queue("activity-queue", true);
-    }
-
+    // The queues are declared by ai-service, which owns their dead-letter arguments. Until it has
+    // declared them, events come back unroutable and stay in the outbox for a later attempt.
     @Bean
     public DirectExchange activityExchange() {
         return new DirectExchange("activity-exchange");
     }
 
-    @Bean
-    public Binding activityBinding(Queue activityQueue, DirectExchange activityExchange) {
-        return BindingBuilder.bind(activityQueue).to(activityExchange).with("activity.tracking");
-    }
-
     @Bean
     public MessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
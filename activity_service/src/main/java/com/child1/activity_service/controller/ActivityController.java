@@ -3,7 +3,12 @@ package com.child1.activity_service.controller;
 
 import com.child1.activity_service.Dto.ActivityRequestDto;
 import com.child1.activity_service.Dto.ActivityResponseDto;
+import com.child1.activity_service.Dto.BulkActivityResultDto;
+import com.child1.activity_service.Dto.DailyActivityStatsDto;
+import com.child1.activity_service.service.ActivityRollupService;
 import com.child1.activity_service.service.ActivityService;
+import com.child1.commonsecurity.JwtPrincipal;
+import com.child1.commonsecurity.web.CurrentUser;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -11,6 +16,7 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -21,6 +27,8 @@ public class ActivityController {
 
     private final ActivityService activityService;
 
+    private final ActivityRollupService rollupService;
+
 
     @GetMapping
     public ResponseEntity<Page<ActivityResponseDto>> getActivitiesPaginated(
@@ -37,20 +45,19 @@ public class ActivityController {
 
     @GetMapping("/my-activities")
     public ResponseEntity<Page<ActivityResponseDto>> getMyActivities(
-            @RequestHeader("Authorization") String token,
+            @CurrentUser JwtPrincipal principal,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "3") int size,
             @RequestParam(defaultValue = "startTime") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDirection) {
 
-        String jwt = extractJwtFromHeader(token);
         System.out.println("Fetching activities for authenticated user");
-        return ResponseEntity.ok(activityService.getActivitiesForAuthenticatedUser(jwt, page, size, sortBy, sortDirection));
+        return ResponseEntity.ok(activityService.getActivitiesForAuthenticatedUser(principal.userId(), page, size, sortBy, sortDirection));
     }
 
     @GetMapping("/my-activities/filtered")
     public ResponseEntity<Page<ActivityResponseDto>> getMyActivitiesWithFilters(
-            @RequestHeader("Authorization") String token,
+            @CurrentUser JwtPrincipal principal,
             @RequestParam(required = false) String activityType,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
@@ -63,97 +70,94 @@ public class ActivityController {
             @RequestParam(defaultValue = "startTime") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDirection) {
 
-        String jwt = extractJwtFromHeader(token);
         System.out.println("Fetching filtered activities for authenticated user");
         return ResponseEntity.ok(activityService.getActivitiesWithFiltersForUser(
-                jwt, activityType, startDate, endDate, minDuration, maxDuration,
+                principal.userId(), activityType, startDate, endDate, minDuration, maxDuration,
                 minCalories, maxCalories, page, size, sortBy, sortDirection));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<ActivityResponseDto> getActivityById(
             @PathVariable String id,
-            @RequestHeader("Authorization") String token) {
+            @CurrentUser JwtPrincipal principal) {
 
-        String jwt = extractJwtFromHeader(token);
         System.out.println("Fetching activity by id: " + id);
-        return ResponseEntity.ok(activityService.getActivityById(id, jwt));
+        return ResponseEntity.ok(activityService.getActivityById(id, principal.userId()));
     }
 
     // Get recent activities for authenticated user
     @GetMapping("/recent")
     public ResponseEntity<List<ActivityResponseDto>> getRecentActivities(
-            @RequestHeader("Authorization") String token,
+            @CurrentUser JwtPrincipal principal,
             @RequestParam(defaultValue = "5") int limit) {
 
-        String jwt = extractJwtFromHeader(token);
         System.out.println("Fetching recent activities, limit: " + limit);
-        return ResponseEntity.ok(activityService.getRecentActivities(jwt, limit));
+        return ResponseEntity.ok(activityService.getRecentActivities(principal.userId(), limit));
     }
 
     @GetMapping("/top-calories")
     public ResponseEntity<List<ActivityResponseDto>> getTopCalorieActivities(
-            @RequestHeader("Authorization") String token) {
+            @CurrentUser JwtPrincipal principal) {
 
-        String jwt = extractJwtFromHeader(token);
         System.out.println("Fetching top calorie activities");
-        return ResponseEntity.ok(activityService.getTopCalorieActivities(jwt));
+        return ResponseEntity.ok(activityService.getTopCalorieActivities(principal.userId()));
     }
 
     // Get activity statistics for authenticated user
     @GetMapping("/stats")
     public ResponseEntity<ActivityService.ActivityStatsDto> getActivityStats(
-            @RequestHeader("Authorization") String token,
+            @CurrentUser JwtPrincipal principal,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
 
-        String jwt = extractJwtFromHeader(token);
         System.out.println("Fetching activity statistics");
-        return ResponseEntity.ok(activityService.getActivityStats(jwt, startDate, endDate));
+        return ResponseEntity.ok(activityService.getActivityStats(principal.userId(), startDate, endDate));
     }
 
+    // Per-day, per-type totals served from the rollup collection
+    @GetMapping("/stats/daily")
+    public ResponseEntity<List<DailyActivityStatsDto>> getDailyActivityStats(
+            @CurrentUser JwtPrincipal principal,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        return ResponseEntity.ok(rollupService.getDailyStats(principal.userId(), startDate, endDate));
+    }
 
     @PostMapping("/create")
     public ResponseEntity<ActivityResponseDto> createActivity(@Valid @RequestBody ActivityRequestDto activity ,
-                                                              @RequestHeader("Authorization") String token) {
-        String jwt = extractJwtFromHeader(token);
-        System.out.println("Creating activity: " + activity + " with token: " + jwt);
-        return   ResponseEntity.ok(activityService.createActivity(activity, jwt));
+                                                              @CurrentUser JwtPrincipal principal) {
+        System.out.println("Creating activity: " + activity);
+        return   ResponseEntity.ok(activityService.createActivity(activity, principal.userId()));
     }
 
 
     @PutMapping("/update/{id}")
-    public ResponseEntity<ActivityResponseDto> updateActivity(@PathVariable String id, @Valid @RequestBody ActivityRequestDto activity, @RequestHeader("Authorization") String token) {
-        String jwt = extractJwtFromHeader(token);
-        return ResponseEntity.ok(activityService.updateActivity(id, activity, jwt));
+    public ResponseEntity<ActivityResponseDto> updateActivity(@PathVariable String id, @Valid @RequestBody ActivityRequestDto activity, @CurrentUser JwtPrincipal principal) {
+        return ResponseEntity.ok(activityService.updateActivity(id, activity, principal.userId()));
     }
 
     @DeleteMapping("/delete/{id}")
-    public ResponseEntity<Void> deleteActivity(@PathVariable String id, @RequestHeader("Authorization") String token) {
-        String jwt = extractJwtFromHeader(token);
-        System.out.println("Deleting activity with id: " + id + " using token: " + jwt);
-        activityService.deleteActivity(id, jwt);
+    public ResponseEntity<Void> deleteActivity(@PathVariable String id, @CurrentUser JwtPrincipal principal) {
+        System.out.println("Deleting activity with id: " + id);
+        activityService.deleteActivity(id, principal.userId());
         return ResponseEntity.noContent().build();
     }
+    // Elements are validated one by one in the service so each gets its own result
     @PostMapping("/bulk/create")
-    public ResponseEntity<List<ActivityResponseDto>> createActivitiesBulk(
-            @Valid @RequestBody List<ActivityRequestDto> activities,
-            @RequestHeader("Authorization") String token) {
-        String jwt = extractJwtFromHeader(token);
+    public ResponseEntity<List<BulkActivityResultDto>> createActivitiesBulk(
+            @RequestBody List<ActivityRequestDto> activities,
+            @CurrentUser JwtPrincipal principal) {
         System.out.println("Creating bulk activities, count: " + activities.size());
-        List<ActivityResponseDto> responses = activities.stream()
-                .map(activity -> activityService.createActivity(activity, jwt))
-                .toList();
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok(activityService.createActivitiesBulk(activities, principal.userId()));
     }
 
     @DeleteMapping("/bulk/delete")
     public ResponseEntity<Void> deleteActivitiesBulk(
             @RequestBody List<String> activityIds,
-            @RequestHeader("Authorization") String token) {
-        String jwt = extractJwtFromHeader(token);
+            @CurrentUser JwtPrincipal principal) {
         System.out.println("Deleting bulk activities, count: " + activityIds.size());
-        activityIds.forEach(id -> activityService.deleteActivity(id, jwt));
+        activityService.deleteActivitiesBulk(activityIds, principal.userId());
         return ResponseEntity.noContent().build();
     }
 
@@ -163,11 +167,4 @@ public class ActivityController {
         return ResponseEntity.ok("Activity Service is running");
     }
 
-    private String extractJwtFromHeader(String tokenHeader) {
-        if (tokenHeader != null && tokenHeader.startsWith("Bearer ")) {
-            return tokenHeader.substring(7).trim();
-        }
-        return tokenHeader != null ? tokenHeader.trim() : null;
-    }
-
 }
@@ -1,7 +1,11 @@
 package com.child1.activity_service.messaging;
 
+import java.util.List;
+
 public class ActivityDeleteMessage {
     private String activityId;
+    // Set instead of activityId by bulk deletes (action DELETE_BATCH)
+    private List<String> activityIds;
     private Long userId;
     private String action;
 
@@ -13,6 +17,14 @@ public class ActivityDeleteMessage {
         this.activityId = activityId;
     }
 
+    public List<String> getActivityIds() {
+        return activityIds;
+    }
+
+    public void setActivityIds(List<String> activityIds) {
+        this.activityIds = activityIds;
+    }
+
     public Long getUserId() {
         return userId;
     }
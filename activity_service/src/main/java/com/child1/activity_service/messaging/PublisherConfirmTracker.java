@@ -0,0 +1,212 @@
+package com.child1.activity_service.messaging;
+
+
+import com.child1.activity_service.outbox.OutboxEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes outbox events with correlated, asynchronous publisher confirms.
+ *
+ * Every send is recorded in a pending table keyed by the outbox event id and removed when the
+ * broker acks or nacks it. A nack, an unroutable return or no confirm within
+ * {@code rabbitmq.publish.confirm-timeout-ms} re-publishes the event up to
+ * {@code rabbitmq.publish.max-republish} times; after that it is handed back to the outbox.
+ * Re-publishes are sent by {@link #sweepTimeouts()}, never from the confirm callback, which runs
+ * on the connection's thread where template operations can deadlock.
+ * Nothing here blocks: the relay collects the outcome with {@link #drainConfirmed()} and
+ * {@link #drainFailed()}.
+ *
+ * Needs {@code spring.rabbitmq.publisher-confirm-type=correlated},
+ * {@code spring.rabbitmq.publisher-returns=true} and {@code spring.rabbitmq.template.mandatory=true}.
+ * Confirm latency and ack/nack/return/timeout counts are published under
+ * {@code activity.publisher.*}.
+ */
+@Component
+public class PublisherConfirmTracker {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PublisherConfirmTracker.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Queue<String> confirmed = new ConcurrentLinkedQueue<>();
+    private final Queue<OutboxEvent> failed = new ConcurrentLinkedQueue<>();
+    private final Queue<Pending> toRepublish = new ConcurrentLinkedQueue<>();
+
+    private final Timer confirmLatency;
+    private final Counter acks;
+    private final Counter nacks;
+    private final Counter returns;
+    private final Counter timeouts;
+    private final Counter republished;
+
+    @Value("${rabbitmq.publish.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+    @Value("${rabbitmq.publish.max-republish:3}")
+    private int maxRepublish;
+
+    public PublisherConfirmTracker(RabbitTemplate rabbitTemplate, MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.rabbitTemplate.setConfirmCallback(this::onConfirm);
+        this.rabbitTemplate.setReturnsCallback(this::onReturn);
+
+        this.confirmLatency = Timer.builder("activity.publisher.confirm.latency")
+                .description("Time from publishing an activity event to the broker's confirm")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.acks = counter(meterRegistry, "ack");
+        this.nacks = counter(meterRegistry, "nack");
+        this.returns = counter(meterRegistry, "returned");
+        this.timeouts = counter(meterRegistry, "timeout");
+        this.republished = Counter.builder("activity.publisher.republished")
+                .description("Activity events sent again after a nack, return or confirm timeout")
+                .register(meterRegistry);
+        Gauge.builder("activity.publisher.confirm.pending", pending, Map::size)
+                .description("Activity events published and not yet confirmed")
+                .register(meterRegistry);
+    }
+
+    public void publish(OutboxEvent event) {
+        send(new Pending(event, 0));
+    }
+
+    public int pendingCount() {
+        return pending.size() + toRepublish.size();
+    }
+
+    /** Ids of events the broker has acked since the last call. */
+    public List<String> drainConfirmed() {
+        return drain(confirmed);
+    }
+
+    /** Events that ran out of re-publish attempts since the last call. */
+    public List<OutboxEvent> drainFailed() {
+        return drain(failed);
+    }
+
+    @Scheduled(fixedDelayString = "${rabbitmq.publish.confirm-sweep-ms:1000}")
+    public void sweepTimeouts() {
+        long deadline = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        for (Pending entry : pending.values()) {
+            if (entry.sentAt - deadline < 0 && pending.remove(entry.event.getId(), entry)) {
+                timeouts.increment();
+                retryOrFail(entry, "no confirm within " + confirmTimeoutMs + "ms");
+            }
+        }
+        Pending entry;
+        while ((entry = toRepublish.poll()) != null) {
+            republished.increment();
+            send(new Pending(entry.event, entry.republishes + 1));
+        }
+    }
+
+    private void send(Pending entry) {
+        OutboxEvent event = entry.event;
+        pending.put(event.getId(), entry);
+        try {
+            rabbitTemplate.send(event.getExchange(), event.getRoutingKey(), toMessage(event),
+                    new CorrelationData(event.getId()));
+        } catch (AmqpException e) {
+            // Never reached the broker, so no confirm will come
+            if (pending.remove(event.getId(), entry)) {
+                logger.warn("Failed to publish activity event {}: {}", event.getId(), e.getMessage());
+                failed.add(event);
+            }
+        }
+    }
+
+    private void onConfirm(CorrelationData correlationData, boolean ack, String cause) {
+        if (correlationData == null || correlationData.getId() == null) {
+            return;
+        }
+        Pending entry = pending.remove(correlationData.getId());
+        if (entry == null) {
+            // Already timed out and re-published or handed back
+            return;
+        }
+        confirmLatency.record(System.nanoTime() - entry.sentAt, TimeUnit.NANOSECONDS);
+        // Returns are delivered before the confirm of the same message
+        if (ack && correlationData.getReturned() == null) {
+            acks.increment();
+            confirmed.add(entry.event.getId());
+            return;
+        }
+        if (!ack) {
+            nacks.increment();
+        }
+        retryOrFail(entry, ack ? "unroutable" : "nacked: " + cause);
+    }
+
+    private void onReturn(ReturnedMessage returned) {
+        returns.increment();
+        logger.warn("Activity event returned by broker: {} {} (exchange {}, routing key {})",
+                returned.getReplyCode(), returned.getReplyText(), returned.getExchange(), returned.getRoutingKey());
+    }
+
+    // Queues the event for the next sweep while re-publishes remain, otherwise hands it back
+    private void retryOrFail(Pending entry, String reason) {
+        if (entry.republishes < maxRepublish) {
+            toRepublish.add(entry);
+            return;
+        }
+        logger.warn("Activity event {} not delivered after {} re-publishes ({})",
+                entry.event.getId(), entry.republishes, reason);
+        failed.add(entry.event);
+    }
+
+    private static Message toMessage(OutboxEvent event) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(event.getContentType());
+        properties.setDeliveryMode(MessageProperties.DEFAULT_DELIVERY_MODE);
+        properties.setMessageId(event.getId());
+        if (event.getHeaders() != null) {
+            event.getHeaders().forEach(properties::setHeader);
+        }
+        return new Message(event.getBody(), properties);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("activity.publisher.confirms")
+                .description("Publisher confirm outcomes for activity events")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static <T> List<T> drain(Queue<T> queue) {
+        List<T> drained = new ArrayList<>();
+        T item;
+        while ((item = queue.poll()) != null) {
+            drained.add(item);
+        }
+        return drained;
+    }
+
+    private static final class Pending {
+        private final OutboxEvent event;
+        private final int republishes;
+        private final long sentAt = System.nanoTime();
+
+        private Pending(OutboxEvent event, int republishes) {
+            this.event = event;
+            this.republishes = republishes;
+        }
+    }
+}
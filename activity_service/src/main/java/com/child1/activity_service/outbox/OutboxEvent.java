@@ -0,0 +1,46 @@
+package com.child1.activity_service.outbox;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+
+/**
+ * A RabbitMQ message waiting to be published. The body and headers are produced by the
+ * application's {@code MessageConverter} when the event is written, so the relay sends exactly
+ * what an inline {@code convertAndSend} would have sent.
+ *
+ * Events are deleted once the broker confirms them. {@code nextAttemptAt} is pushed forward
+ * while a relay holds the event and after each failed attempt.
+ */
+@Document(collection = "activity_outbox")
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxEvent {
+    @Id
+    private String id;
+
+    private String aggregateId;
+    private String exchange;
+    private String routingKey;
+    private String contentType;
+    private Map<String, Object> headers;
+    private byte[] body;
+
+    private int attempts;
+    private Instant createdAt;
+    @Indexed(name = "next_attempt")
+    private Instant nextAttemptAt;
+    private String claimedBy;
+    private String lastError;
+}
@@ -0,0 +1,133 @@
+package com.child1.activity_service.outbox;
+
+
+import com.child1.activity_service.messaging.PublisherConfirmTracker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Drains {@code activity_outbox} to RabbitMQ through {@link PublisherConfirmTracker}.
+ *
+ * Each run first deletes the events the broker has confirmed since the last run and reschedules
+ * the ones that failed, then claims and publishes new events while fewer than
+ * {@code activity.outbox.max-in-flight} are awaiting a confirm. The lease must outlast the
+ * tracker's confirm timeout times its re-publish attempts.
+ *
+ * A batch is claimed by pushing its {@code nextAttemptAt} one lease into the future, so several
+ * service instances can relay side by side; if an instance dies mid-batch its events become due
+ * again when the lease runs out. Delivery is therefore at-least-once. Failed events are retried
+ * with exponential backoff capped at {@code activity.outbox.max-backoff} and are never dropped.
+ */
+@Component
+public class OutboxRelay {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final PublisherConfirmTracker tracker;
+
+    @Value("${activity.outbox.batch-size:100}")
+    private int batchSize;
+    @Value("${activity.outbox.lease:30s}")
+    private Duration lease;
+    @Value("${activity.outbox.max-backoff:5m}")
+    private Duration maxBackoff;
+    @Value("${activity.outbox.max-in-flight:1000}")
+    private int maxInFlight;
+
+    public OutboxRelay(MongoTemplate mongoTemplate, PublisherConfirmTracker tracker) {
+        this.mongoTemplate = mongoTemplate;
+        this.tracker = tracker;
+    }
+
+    @Scheduled(fixedDelayString = "${activity.outbox.poll-interval-ms:500}")
+    public void relay() {
+        try {
+            removeConfirmed();
+        } catch (RuntimeException e) {
+            // The events stay leased; confirmed ones that get re-sent later are duplicates, not losses
+            logger.error("Failed to remove confirmed events from the activity outbox", e);
+        }
+        tracker.drainFailed().forEach(this::scheduleRetry);
+
+        int limit;
+        while ((limit = Math.min(batchSize, maxInFlight - tracker.pendingCount())) > 0) {
+            List<OutboxEvent> batch;
+            try {
+                batch = claimBatch(limit);
+            } catch (RuntimeException e) {
+                logger.error("Failed to read the activity outbox", e);
+                return;
+            }
+            batch.forEach(tracker::publish);
+            if (batch.size() < limit) {
+                return;
+            }
+        }
+    }
+
+    private void removeConfirmed() {
+        List<String> confirmed = tracker.drainConfirmed();
+        for (int from = 0; from < confirmed.size(); from += batchSize) {
+            List<String> chunk = confirmed.subList(from, Math.min(from + batchSize, confirmed.size()));
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(chunk)), OutboxEvent.class);
+        }
+    }
+
+    private List<OutboxEvent> claimBatch(int limit) {
+        Instant now = Instant.now();
+        Query due = Query.query(Criteria.where("nextAttemptAt").lte(now))
+                .with(Sort.by("nextAttemptAt"))
+                .limit(limit);
+        due.fields().include("_id");
+        List<String> ids = mongoTemplate.find(due, OutboxEvent.class).stream().map(OutboxEvent::getId).toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Only events still due are taken, so a concurrent relay that claimed some of them keeps them
+        String claim = UUID.randomUUID().toString();
+        mongoTemplate.updateMulti(
+                Query.query(Criteria.where("_id").in(ids).and("nextAttemptAt").lte(now)),
+                new Update().set("nextAttemptAt", now.plus(lease)).set("claimedBy", claim),
+                OutboxEvent.class);
+        List<OutboxEvent> claimed = mongoTemplate.find(
+                Query.query(Criteria.where("_id").in(ids).and("claimedBy").is(claim)), OutboxEvent.class);
+        return claimed.stream().sorted(Comparator.comparing(OutboxEvent::getCreatedAt)).toList();
+    }
+
+    private void scheduleRetry(OutboxEvent event) {
+        int attempts = event.getAttempts() + 1;
+        Duration backoff = Duration.ofSeconds(1L << Math.min(attempts - 1, 20));
+        if (backoff.compareTo(maxBackoff) > 0) {
+            backoff = maxBackoff;
+        }
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(event.getId())),
+                    new Update()
+                            .set("attempts", attempts)
+                            .set("nextAttemptAt", Instant.now().plus(backoff))
+                            .set("lastError", "not confirmed by broker")
+                            .unset("claimedBy"),
+                    OutboxEvent.class);
+        } catch (RuntimeException e) {
+            // The lease still expires, so the event is retried either way
+            logger.error("Failed to schedule retry for outbox event {}", event.getId(), e);
+        }
+        if (attempts % 10 == 0) {
+            logger.warn("Outbox event {} for {} still unpublished after {} attempts",
+                    event.getId(), event.getAggregateId(), attempts);
+        }
+    }
+}
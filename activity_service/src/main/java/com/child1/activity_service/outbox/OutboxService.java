@@ -0,0 +1,80 @@
+package com.child1.activity_service.outbox;
+
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Records activity events in the {@code activity_outbox} collection instead of sending them
+ * inline; {@link OutboxRelay} publishes them in the background.
+ *
+ * With {@code activity.outbox.transactional=true} (MongoDB must run as a replica set),
+ * {@link #atomically} commits the activity write and its event in one transaction. Without it the
+ * event is written right after the activity, so only a crash between the two writes loses it.
+ */
+@Service
+public class OutboxService {
+
+    private final MongoTemplate mongoTemplate;
+    private final MessageConverter messageConverter;
+    private final TransactionTemplate transactionTemplate;
+
+    public OutboxService(MongoTemplate mongoTemplate, MessageConverter messageConverter,
+                         ObjectProvider<MongoTransactionManager> transactionManager) {
+        this.mongoTemplate = mongoTemplate;
+        this.messageConverter = messageConverter;
+        MongoTransactionManager manager = transactionManager.getIfAvailable();
+        this.transactionTemplate = manager != null ? new TransactionTemplate(manager) : null;
+    }
+
+    /**
+     * Runs a write together with the events it enqueues, in a transaction when one is configured.
+     */
+    public <T> T atomically(Supplier<T> work) {
+        return transactionTemplate != null ? transactionTemplate.execute(status -> work.get()) : work.get();
+    }
+
+    public void enqueue(String exchange, String routingKey, Object payload, String aggregateId) {
+        mongoTemplate.insert(toEvent(exchange, routingKey, payload, aggregateId, Instant.now()));
+    }
+
+    /**
+     * Enqueues one event per payload with a single insertMany.
+     */
+    public <T> void enqueueAll(String exchange, String routingKey, List<T> payloads, Function<T, String> aggregateId) {
+        if (payloads.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<OutboxEvent> events = payloads.stream()
+                .map(payload -> toEvent(exchange, routingKey, payload, aggregateId.apply(payload), now))
+                .toList();
+        mongoTemplate.insert(events, OutboxEvent.class);
+    }
+
+    private OutboxEvent toEvent(String exchange, String routingKey, Object payload, String aggregateId, Instant now) {
+        Message message = messageConverter.toMessage(payload, new MessageProperties());
+        return OutboxEvent.builder()
+                .aggregateId(aggregateId)
+                .exchange(exchange)
+                .routingKey(routingKey)
+                .contentType(message.getMessageProperties().getContentType())
+                .headers(new HashMap<>(message.getMessageProperties().getHeaders()))
+                .body(message.getBody())
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build();
+    }
+}
@@ -9,11 +9,12 @@ import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ActivityRepo extends MongoRepository<Activity, Long> {
+public interface ActivityRepo extends MongoRepository<Activity, Long>, ActivityRepoCustom {
 
 
     List<Activity> findTop5ByUserIdOrderByStartTimeDesc(Long userId);
@@ -36,5 +37,11 @@ public interface ActivityRepo extends MongoRepository<Activity, Long> {
 
 
 
-    void deleteByUserIdAndId(Long userId, String id);
+    List<Activity> findByUserIdAndIdIn(Long userId, Collection<String> ids);
+
+    // Single deleteMany; returns the number of documents removed
+    long deleteByUserIdAndIdIn(Long userId, Collection<String> ids);
+
+    // Returns the removed document (findAndRemove) so callers can see what was deleted
+    Activity deleteByUserIdAndId(Long userId, String id);
 }
@@ -0,0 +1,42 @@
+package com.child1.activity_service.repo;
+
+import com.child1.activity_service.Model.ActivitType;
+import com.child1.activity_service.Model.Activity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface ActivityRepoCustom {
+
+    /**
+     * Pages through a user's activities with every non-null filter applied in MongoDB.
+     * Range bounds are inclusive; the total is the number of matches across all pages.
+     */
+    Page<Activity> findByUserIdWithFilters(Long userId, ActivitType activityType,
+                                           LocalDateTime startDate, LocalDateTime endDate,
+                                           Integer minDuration, Integer maxDuration,
+                                           Integer minCalories, Integer maxCalories,
+                                           Pageable pageable);
+
+    /**
+     * Totals, min/max and per-type totals for a user's activities whose start time lies in the
+     * (inclusive, optional) range, computed server-side. Empty when nothing matches.
+     */
+    Optional<ActivityStatsView> aggregateStats(Long userId, LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * Inserts all activities with one unordered insertMany, so a bad document does not stop the
+     * rest. Returns the error message of every document that was not written, keyed by its index.
+     */
+    Map<Integer, String> insertUnordered(List<Activity> activities);
+
+    /**
+     * Sets {@code version: 0} on the activity if it has none, e.g. one written before versioning
+     * after the startup backfill ran. Returns whether the document was changed.
+     */
+    boolean initializeVersion(String id);
+}
@@ -0,0 +1,123 @@
+package com.child1.activity_service.repo;
+
+import com.child1.activity_service.Model.ActivitType;
+import com.child1.activity_service.Model.Activity;
+import org.bson.Document;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+
+public class ActivityRepoCustomImpl implements ActivityRepoCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public ActivityRepoCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Page<Activity> findByUserIdWithFilters(Long userId, ActivitType activityType,
+                                                  LocalDateTime startDate, LocalDateTime endDate,
+                                                  Integer minDuration, Integer maxDuration,
+                                                  Integer minCalories, Integer maxCalories,
+                                                  Pageable pageable) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (activityType != null) {
+            criteria.and("activityType").is(activityType);
+        }
+        addRange(criteria, "startTime", startDate, endDate);
+        addRange(criteria, "duration", minDuration, maxDuration);
+        addRange(criteria, "caloriesBurned", minCalories, maxCalories);
+
+        Query query = new Query(criteria).with(pageable);
+        List<Activity> content = mongoTemplate.find(query, Activity.class);
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> mongoTemplate.count(Query.of(query).limit(-1).skip(-1), Activity.class));
+    }
+
+    @Override
+    public Map<Integer, String> insertUnordered(List<Activity> activities) {
+        Map<Integer, String> failures = new LinkedHashMap<>();
+        if (activities.isEmpty()) {
+            return failures;
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Activity.class)
+                    .insert(activities)
+                    .execute();
+        } catch (BulkOperationException e) {
+            e.getErrors().forEach(error -> failures.put(error.getIndex(), error.getMessage()));
+        }
+        return failures;
+    }
+
+    @Override
+    public Optional<ActivityStatsView> aggregateStats(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        addRange(criteria, "startTime", startDate, endDate);
+
+        // Group per type first (at most one row per ActivitType), then fold those rows into one document.
+        Aggregation aggregation = newAggregation(
+                match(criteria),
+                group("activityType")
+                        .count().as("count")
+                        .sum("caloriesBurned").as("totalCalories")
+                        .sum("duration").as("totalDuration")
+                        .min("caloriesBurned").as("minCalories")
+                        .max("caloriesBurned").as("maxCalories")
+                        .min("duration").as("minDuration")
+                        .max("duration").as("maxDuration"),
+                group()
+                        .sum("count").as("totalActivities")
+                        .sum("totalCalories").as("totalCalories")
+                        .sum("totalDuration").as("totalDuration")
+                        .min("minCalories").as("minCalories")
+                        .max("maxCalories").as("maxCalories")
+                        .min("minDuration").as("minDuration")
+                        .max("maxDuration").as("maxDuration")
+                        .push(new Document("activityType", "$_id")
+                                .append("count", "$count")
+                                .append("totalCalories", "$totalCalories")
+                                .append("totalDuration", "$totalDuration")).as("byType")
+        );
+        return Optional.ofNullable(mongoTemplate.aggregate(aggregation, Activity.class, ActivityStatsView.class)
+                .getUniqueMappedResult());
+    }
+
+    private static void addRange(Criteria criteria, String field, Object min, Object max) {
+        if (min == null && max == null) {
+            return;
+        }
+        Criteria range = criteria.and(field);
+        if (min != null) {
+            range.gte(min);
+        }
+        if (max != null) {
+            range.lte(max);
+        }
+    }
+
+    @Override
+    public boolean initializeVersion(String id) {
+        Query unversioned = Query.query(Criteria.where("_id").is(id).and("version").is(null));
+        return mongoTemplate.updateFirst(unversioned, new Update().set("version", 0L), Activity.class)
+                .getModifiedCount() > 0;
+    }
+}
@@ -0,0 +1,18 @@
+package com.child1.activity_service.repo;
+
+
+import com.child1.activity_service.Model.ActivityDailyRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ActivityRollupRepo extends MongoRepository<ActivityDailyRollup, String> {
+
+    @Query(value = "{ 'userId': ?0, 'day': { $gte: ?1, $lte: ?2 } }", sort = "{ 'day': 1 }")
+    List<ActivityDailyRollup> findByUserIdAndDayRange(Long userId, String fromDay, String toDay);
+
+    List<ActivityDailyRollup> findByUserIdOrderByDayAsc(Long userId);
+}
@@ -0,0 +1,31 @@
+package com.child1.activity_service.repo;
+
+import com.child1.activity_service.Model.ActivitType;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The single document produced by {@link ActivityRepoCustom#aggregateStats}.
+ */
+@Data
+public class ActivityStatsView {
+
+    private long totalActivities;
+    private long totalCalories;
+    private long totalDuration;
+    private Integer minCalories;
+    private Integer maxCalories;
+    private Integer minDuration;
+    private Integer maxDuration;
+    private List<TypeTotals> byType = new ArrayList<>();
+
+    @Data
+    public static class TypeTotals {
+        private ActivitType activityType;
+        private long count;
+        private long totalCalories;
+        private long totalDuration;
+    }
+}
@@ -0,0 +1,223 @@
+package com.child1.activity_service.service;
+
+
+import com.child1.activity_service.Dto.DailyActivityStatsDto;
+import com.child1.activity_service.Model.Activity;
+import com.child1.activity_service.Model.ActivityDailyRollup;
+import com.child1.activity_service.repo.ActivityRollupRepo;
+import org.bson.Document;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.MergeOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.merge;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+
+/**
+ * Keeps {@code activity_daily_rollups} in step with activity writes using atomic {@code $inc}
+ * upserts, and serves day-range stats from it.
+ *
+ * The rollup write is a separate document from the activity, so a failure between the two can
+ * leave a day off by one activity; {@link #rebuild} recomputes rollups from the raw history.
+ */
+@Service
+public class ActivityRollupService {
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ActivityRollupService.class);
+
+    // Set on every bucket when a rebuild starts; buckets still carrying it at the end were not recomputed
+    private static final String REBUILD_MARK = "rebuildId";
+
+    private final MongoTemplate mongoTemplate;
+    private final ActivityRollupRepo rollupRepo;
+
+    public ActivityRollupService(MongoTemplate mongoTemplate, ActivityRollupRepo rollupRepo) {
+        this.mongoTemplate = mongoTemplate;
+        this.rollupRepo = rollupRepo;
+    }
+
+    public void recordCreated(Activity activity) {
+        apply(activity, 1);
+    }
+
+    /**
+     * Folds a batch of new activities into their buckets in memory first, then applies all the
+     * increments with a single unordered bulk write.
+     */
+    public void recordCreated(Collection<Activity> activities) {
+        applyAll(activities, 1);
+    }
+
+    public void recordDeleted(Collection<Activity> activities) {
+        applyAll(activities, -1);
+    }
+
+    public void recordDeleted(Activity activity) {
+        apply(activity, -1);
+    }
+
+    public void recordUpdated(Activity before, Activity after) {
+        apply(before, -1);
+        apply(after, 1);
+    }
+
+    public List<DailyActivityStatsDto> getDailyStats(Long userId, LocalDate fromDay, LocalDate toDay) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID cannot be null");
+        }
+        if (fromDay != null && toDay != null && fromDay.isAfter(toDay)) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
+        try {
+            List<ActivityDailyRollup> rollups = fromDay == null && toDay == null
+                    ? rollupRepo.findByUserIdOrderByDayAsc(userId)
+                    : rollupRepo.findByUserIdAndDayRange(userId,
+                            fromDay != null ? fromDay.toString() : LocalDate.MIN.toString(),
+                            toDay != null ? toDay.toString() : LocalDate.MAX.toString());
+            return rollups.stream()
+                    .map(rollup -> new DailyActivityStatsDto(LocalDate.parse(rollup.getDay()), rollup.getActivityType(),
+                            rollup.getCount(), rollup.getTotalCalories(), rollup.getTotalDuration()))
+                    .toList();
+        } catch (DataAccessException e) {
+            logger.error("Database error while fetching daily activity stats", e);
+            throw new RuntimeException("Database error while fetching daily activity stats", e);
+        }
+    }
+
+    /**
+     * Recomputes the rollups of one user (or of everyone when {@code userId} is null) from the
+     * activities collection. Buckets are overwritten in place, so reads keep working while it
+     * runs, and buckets the recomputation no longer produces are removed afterwards. A bucket that
+     * an activity write touched during the run keeps its incremental totals instead of being
+     * overwritten or removed; any drift in it is left to the next rebuild.
+     */
+    public void rebuild(Long userId) {
+        Criteria criteria = userId != null ? Criteria.where("userId").is(userId) : new Criteria();
+        String run = UUID.randomUUID().toString();
+        // Marks the buckets that exist now; the merge and incremental writes clear the mark
+        mongoTemplate.updateMulti(Query.query(criteria), new Update().set(REBUILD_MARK, run), ActivityDailyRollup.class);
+
+        // LocalDateTime is stored as an instant in the JVM's zone, so read the day back in that zone.
+        String zone = ZoneId.systemDefault().getId();
+        Aggregation aggregation = newAggregation(
+                match(criteria),
+                project("userId", "activityType", "caloriesBurned", "duration")
+                        .and(DateOperators.dateOf("startTime").withTimezone(DateOperators.Timezone.valueOf(zone))
+                                .toString("%Y-%m-%d")).as("day"),
+                group("userId", "day", "activityType")
+                        .count().as("count")
+                        .sum("caloriesBurned").as("totalCalories")
+                        .sum("duration").as("totalDuration"),
+                project("count", "totalCalories", "totalDuration")
+                        .and("_id.userId").as("userId")
+                        .and("_id.day").as("day")
+                        .and("_id.activityType").as("activityType")
+                        .andExclude("_id"),
+                merge().intoCollection("activity_daily_rollups")
+                        .on("userId", "day", "activityType")
+                        .whenMatched(overwriteUnlessWritten(run))
+                        .whenNotMatched(MergeOperation.WhenDocumentsDontMatch.insertNewDocument())
+                        .build()
+        );
+        mongoTemplate.aggregate(aggregation, "activities", ActivityDailyRollup.class);
+        long removed = mongoTemplate.remove(Query.query(Criteria.where(REBUILD_MARK).is(run)), ActivityDailyRollup.class)
+                .getDeletedCount();
+        logger.info("Rebuilt activity rollups for {}, removed {} buckets without activities",
+                userId != null ? "user " + userId : "all users", removed);
+    }
+
+    // Takes the recomputed totals only for buckets still carrying this run's mark, then clears the mark
+    private static MergeOperation.WhenDocumentsMatch overwriteUnlessWritten(String run) {
+        Document untouched = new Document("$eq", List.of("$" + REBUILD_MARK, run));
+        Document totals = new Document();
+        for (String field : List.of("count", "totalCalories", "totalDuration")) {
+            totals.append(field, new Document("$cond", List.of(untouched, "$$new." + field, "$" + field)));
+        }
+        return MergeOperation.WhenDocumentsMatch.updateWith(List.<AggregationOperation>of(
+                context -> new Document("$set", totals),
+                context -> new Document("$unset", REBUILD_MARK)));
+    }
+
+    private void applyAll(Collection<Activity> activities, int sign) {
+        Map<List<Object>, long[]> buckets = new LinkedHashMap<>();
+        for (Activity activity : activities) {
+            if (activity.getUserId() == null || activity.getStartTime() == null) {
+                continue;
+            }
+            long[] totals = buckets.computeIfAbsent(List.of(activity.getUserId(),
+                    activity.getStartTime().toLocalDate().toString(), activity.getActivityType()), key -> new long[3]);
+            totals[0] += sign;
+            totals[1] += sign * valueOf(activity.getCaloriesBurned());
+            totals[2] += sign * valueOf(activity.getDuration());
+        }
+        if (buckets.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ActivityDailyRollup.class);
+        buckets.forEach((key, totals) -> bulk.upsert(bucketQuery((Long) key.get(0), (String) key.get(1), key.get(2)),
+                new Update().inc("count", totals[0]).inc("totalCalories", totals[1]).inc("totalDuration", totals[2])
+                        .unset(REBUILD_MARK)));
+        try {
+            bulk.execute();
+            if (sign < 0) {
+                Set<Object> userIds = buckets.keySet().stream().map(key -> key.get(0)).collect(Collectors.toSet());
+                mongoTemplate.remove(Query.query(Criteria.where("userId").in(userIds).and("count").lte(0)),
+                        ActivityDailyRollup.class);
+            }
+        } catch (DataAccessException e) {
+            logger.error("Failed to update daily rollups for {} activities", activities.size(), e);
+        }
+    }
+
+    private void apply(Activity activity, int sign) {
+        if (activity == null || activity.getUserId() == null || activity.getStartTime() == null) {
+            return;
+        }
+        Query query = bucketQuery(activity.getUserId(), activity.getStartTime().toLocalDate().toString(),
+                activity.getActivityType());
+        Update update = new Update()
+                .inc("count", sign)
+                .inc("totalCalories", sign * valueOf(activity.getCaloriesBurned()))
+                .inc("totalDuration", sign * valueOf(activity.getDuration()))
+                .unset(REBUILD_MARK);
+        try {
+            mongoTemplate.upsert(query, update, ActivityDailyRollup.class);
+            if (sign < 0) {
+                mongoTemplate.remove(Query.of(query).addCriteria(Criteria.where("count").lte(0)), ActivityDailyRollup.class);
+            }
+        } catch (DataAccessException e) {
+            // The activity write already succeeded; a missed rollup is repaired by rebuild().
+            logger.error("Failed to update daily rollup for activity {}", activity.getId(), e);
+        }
+    }
+
+    private static Query bucketQuery(Long userId, String day, Object activityType) {
+        return Query.query(Criteria.where("userId").is(userId)
+                .and("day").is(day)
+                .and("activityType").is(activityType));
+    }
+
+    private static long valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+}
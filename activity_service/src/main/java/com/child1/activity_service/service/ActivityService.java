@@ -2,38 +2,51 @@ package com.child1.activity_service.service;
 
 
 import com.child1.activity_service.Dto.ActivityRequestDto;
+import com.child1.activity_service.Dto.BulkActivityResultDto;
 import com.child1.activity_service.Dto.ActivityResponseDto;
+import com.child1.activity_service.Model.ActivitType;
 import com.child1.activity_service.Model.Activity;
 import com.child1.activity_service.repo.ActivityRepo;
-import com.child1.commonsecurity.JwtService;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import com.child1.activity_service.repo.ActivityStatsView;
+import lombok.Getter;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.TransactionException;
 import com.child1.activity_service.messaging.ActivityUpdateMessage;
 import com.child1.activity_service.messaging.ActivityDeleteMessage;
+import com.child1.activity_service.outbox.OutboxService;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ActivityService {
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ActivityService.class);
 
-    private final ActivityRepo activityRepo;
+    // Sort keys the filtered listing accepts; arbitrary keys cannot be served by an index and sort in memory.
+    private static final Set<String> FILTER_SORT_FIELDS = Set.of("startTime", "caloriesBurned", "duration");
 
-    private final RabbitTemplate rabbitTemplate;
-    private final JwtService jwtService;
+    private final ActivityRepo activityRepo;
 
+    private final ActivityRollupService rollupService;
 
-    public ActivityService(ActivityRepo activityRepo, RabbitTemplate rabbitTemplate, JwtService jwtService) {
-        this.activityRepo = activityRepo;
-        this.rabbitTemplate = rabbitTemplate;
+    // Events are written here with the activity and published by OutboxRelay, never inline
+    private final OutboxService outboxService;
 
-        this.jwtService = jwtService;
 
+    public ActivityService(ActivityRepo activityRepo, ActivityRollupService rollupService, OutboxService outboxService) {
+        this.activityRepo = activityRepo;
+        this.rollupService = rollupService;
+        this.outboxService = outboxService;
     }
 
 
@@ -45,27 +58,105 @@ public class ActivityService {
     private String updateRoutingKey;
     @Value("${rabbitmq.delete.routing.key}")
     private String deleteRoutingKey;
+    @Value("${activity.bulk.max-size:500}")
+    private int bulkMaxSize;
 
 
 
-    public ActivityResponseDto createActivity(ActivityRequestDto activity, String authHeader) {
-        if (activity == null) {
-            throw new IllegalArgumentException("Activity request cannot be null");
-        }
-        if (!StringUtils.hasText(authHeader)) {
-            throw new IllegalArgumentException("Authorization header is required");
+    public ActivityResponseDto createActivity(ActivityRequestDto activity, Long userId) {
+        if (userId == null) {
+            throw new RuntimeException("Invalid token: userId missing");
         }
-        String token = authHeader.startsWith("Bearer ") ? authHeader.substring(7) : authHeader;
-        Long userId;
+        validateNewActivity(activity, userId);
+        Activity entity = activity.toEntity();
+        entity.setUserId(userId);
+        Activity savedEntity;
         try {
-            userId = jwtService.extractUserId(token);
-        } catch (Exception e) {
-            logger.error("Error extracting userId from token", e);
-            throw new RuntimeException("Invalid token");
+            savedEntity = outboxService.atomically(() -> {
+                Activity saved = activityRepo.save(entity);
+                outboxService.enqueue(exchange, routingKey, saved, saved.getId());
+                return saved;
+            });
+        } catch (DataAccessException | TransactionException e) {
+            logger.error("Database error while saving activity", e);
+            throw new RuntimeException("Database error while saving activity", e);
         }
+        rollupService.recordCreated(savedEntity);
+        return mapToResponseDto(savedEntity);
+    }
+
+    /**
+     * Creates a batch of activities with one insertMany and enqueues their events with a second
+     * one. Every element gets a result: invalid ones are skipped rather than failing the
+     * whole request, and elements the database rejected are reported as FAILED.
+     */
+    public List<BulkActivityResultDto> createActivitiesBulk(List<ActivityRequestDto> activities, Long userId) {
         if (userId == null) {
             throw new RuntimeException("Invalid token: userId missing");
         }
+        if (activities == null || activities.isEmpty()) {
+            throw new IllegalArgumentException("Bulk request must contain at least one activity");
+        }
+        if (activities.size() > bulkMaxSize) {
+            throw new IllegalArgumentException("Bulk request may contain at most " + bulkMaxSize + " activities");
+        }
+
+        BulkActivityResultDto[] results = new BulkActivityResultDto[activities.size()];
+        List<Integer> indexes = new ArrayList<>();
+        List<Activity> entities = new ArrayList<>();
+        for (int i = 0; i < activities.size(); i++) {
+            try {
+                validateNewActivity(activities.get(i), userId);
+            } catch (IllegalArgumentException e) {
+                results[i] = BulkActivityResultDto.rejected(i, BulkActivityResultDto.Status.INVALID, e.getMessage());
+                continue;
+            }
+            Activity entity = activities.get(i).toEntity();
+            entity.setUserId(userId);
+            // Assigned up front so each result can be matched to its document after the unordered insert
+            entity.setId(new ObjectId().toHexString());
+            // Bulk inserts skip version initialisation, so start it here
+            entity.setVersion(0L);
+            indexes.add(i);
+            entities.add(entity);
+        }
+
+        // With transactions enabled a document the database rejects aborts the whole batch
+        Map<Integer, String> insertFailures;
+        List<Activity> saved = new ArrayList<>();
+        try {
+            insertFailures = outboxService.atomically(() -> {
+                Map<Integer, String> failures = activityRepo.insertUnordered(entities);
+                for (int j = 0; j < entities.size(); j++) {
+                    if (!failures.containsKey(j)) {
+                        saved.add(entities.get(j));
+                    }
+                }
+                outboxService.enqueueAll(exchange, routingKey, saved, Activity::getId);
+                return failures;
+            });
+        } catch (DataAccessException | TransactionException e) {
+            logger.error("Database error while saving {} activities", entities.size(), e);
+            throw new RuntimeException("Database error while saving activities", e);
+        }
+
+        rollupService.recordCreated(saved);
+        for (int j = 0; j < entities.size(); j++) {
+            if (insertFailures.containsKey(j)) {
+                results[indexes.get(j)] = BulkActivityResultDto.rejected(indexes.get(j),
+                        BulkActivityResultDto.Status.FAILED, insertFailures.get(j));
+            } else {
+                results[indexes.get(j)] = BulkActivityResultDto.created(indexes.get(j), mapToResponseDto(entities.get(j)));
+            }
+        }
+        logger.info("Bulk create for user {}: {} requested, {} saved", userId, activities.size(), saved.size());
+        return Arrays.asList(results);
+    }
+
+    private void validateNewActivity(ActivityRequestDto activity, Long userId) {
+        if (activity == null) {
+            throw new IllegalArgumentException("Activity request cannot be null");
+        }
         if (activity.getUserId() != null && !activity.getUserId().equals(userId)) {
             throw new IllegalArgumentException("User ID in request does not match authenticated user");
         }
@@ -82,24 +173,6 @@ public class ActivityService {
         if (activity.getStartTime() == null) {
             throw new IllegalArgumentException("Start time is required");
         }
-        Activity entity = activity.toEntity();
-        entity.setUserId(userId);
-        Activity savedEntity;
-        try {
-            savedEntity = activityRepo.save(entity);
-        } catch (DataAccessException e) {
-            logger.error("Database error while saving activity", e);
-            throw new RuntimeException("Database error while saving activity", e);
-        }
-        ActivityResponseDto response = mapToResponseDto(savedEntity);
-        try {
-            rabbitTemplate.convertAndSend(exchange, routingKey, savedEntity);
-            logger.info("Activity sent to RabbitMQ: {}", savedEntity);
-        } catch (Exception e) {
-            logger.error("Failed to send activity to RabbitMQ", e);
-            throw new RuntimeException("Failed to send activity to RabbitMQ", e);
-        }
-        return response;
     }
 
     private ActivityResponseDto mapToResponseDto(Activity activity) {
@@ -111,33 +184,41 @@ public class ActivityService {
         response.setCaloriesBurned(activity.getCaloriesBurned());
         response.setStartTime(activity.getStartTime());
         response.setAdditionalMetrics(activity.getAdditionalMetrics());
+        response.setVersion(activity.getVersion());
         return response;
     }
 
-    public ActivityResponseDto updateActivity(String id, ActivityRequestDto activity , String authHeader) {
-        Long userId = jwtService.extractUserId(authHeader);
+    public ActivityResponseDto updateActivity(String id, ActivityRequestDto activity, Long userId) {
         Optional<Activity> existingActivityOpt = activityRepo.findByIdAndUserId(id, userId);
         if (existingActivityOpt.isEmpty()) {
             throw new RuntimeException("Activity not found or access denied");
         }
         Activity existingActivity = existingActivityOpt.get();
+        if (existingActivity.getVersion() == null) {
+            // Saving without a version would insert and clash on _id; give it the backfill's version 0 first.
+            // If another request got there first, the save below fails the version check as usual.
+            activityRepo.initializeVersion(id);
+            existingActivity.setVersion(0L);
+        }
+        Activity previous = existingActivity.toBuilder().build();
         updateActivityFields(existingActivity, activity);
+        ActivityUpdateMessage updateMessage = new ActivityUpdateMessage();
+        updateMessage.setActivityId(id);
+        updateMessage.setAction("UPDATE");
         try {
-            activityRepo.save(existingActivity);
-        } catch (DataAccessException e) {
+            outboxService.atomically(() -> {
+                // The saved copy carries the new version the consumers fence on
+                updateMessage.setActivity(activityRepo.save(existingActivity));
+                outboxService.enqueue(exchange, updateRoutingKey, updateMessage, id);
+                return null;
+            });
+        } catch (OptimisticLockingFailureException e) {
+            throw e;
+        } catch (DataAccessException | TransactionException e) {
             logger.error("Database error while updating activity", e);
             throw new RuntimeException("Database error while updating activity", e);
         }
-        try {
-            ActivityUpdateMessage updateMessage = new ActivityUpdateMessage();
-            updateMessage.setActivityId(id);
-            updateMessage.setActivity(existingActivity);
-            updateMessage.setAction("UPDATE");
-            rabbitTemplate.convertAndSend(exchange, updateRoutingKey, updateMessage);
-            logger.info("Activity update sent to RabbitMQ: {}", id);
-        } catch (Exception e) {
-            logger.error("Failed to send activity update to RabbitMQ", e);
-        }
+        rollupService.recordUpdated(previous, existingActivity);
         return mapToResponseDto(existingActivity);
     }
 
@@ -159,37 +240,84 @@ public class ActivityService {
         }
     }
 
-    public void deleteActivity(String id , String authHeader) {
-        Long userId = jwtService.extractUserId(authHeader);
+    public void deleteActivity(String id, Long userId) {
         if (id == null || id.trim().isEmpty()) {
             throw new IllegalArgumentException("Activity id cannot be null or empty");
         }
         if (userId == null) {
             throw new RuntimeException("Invalid token: userId missing");
         }
+        ActivityDeleteMessage deleteMessage = new ActivityDeleteMessage();
+        deleteMessage.setActivityId(id);
+        deleteMessage.setUserId(userId);
+        deleteMessage.setAction("DELETE");
         try {
-            activityRepo.deleteByUserIdAndId(userId, id);
-            ActivityDeleteMessage deleteMessage = new ActivityDeleteMessage();
-            deleteMessage.setActivityId(id);
-            deleteMessage.setUserId(userId);
-            deleteMessage.setAction("DELETE");
-            rabbitTemplate.convertAndSend(exchange, deleteRoutingKey, deleteMessage);
-            logger.info("Activity deletion message sent to RabbitMQ: {}", id);
-
-        } catch (DataAccessException e) {
+            Activity deleted = outboxService.atomically(() -> {
+                Activity removed = activityRepo.deleteByUserIdAndId(userId, id);
+                if (removed != null) {
+                    outboxService.enqueue(exchange, deleteRoutingKey, deleteMessage, id);
+                }
+                return removed;
+            });
+            rollupService.recordDeleted(deleted);
+        } catch (DataAccessException | TransactionException e) {
             logger.error("Database error while deleting activity", e);
             throw new RuntimeException("Database error while deleting activity", e);
         }
     }
 
-    public ActivityResponseDto getActivityById(String id, String authHeader) {
+    /**
+     * Deletes the user's activities among {@code ids} with one deleteMany and announces them in a
+     * single DELETE_BATCH message. Ids that do not exist or belong to someone else are ignored.
+     */
+    public void deleteActivitiesBulk(List<String> ids, Long userId) {
+        if (userId == null) {
+            throw new RuntimeException("Invalid token: userId missing");
+        }
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Bulk request must contain at least one activity id");
+        }
+        if (ids.size() > bulkMaxSize) {
+            throw new IllegalArgumentException("Bulk request may contain at most " + bulkMaxSize + " activities");
+        }
+        Set<String> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.stream().anyMatch(id -> id == null || id.trim().isEmpty())) {
+            throw new IllegalArgumentException("Activity id cannot be null or empty");
+        }
+
+        try {
+            // Read first: the rollups need the type, day and totals of what is about to go
+            List<Activity> owned = activityRepo.findByUserIdAndIdIn(userId, distinctIds);
+            if (owned.isEmpty()) {
+                return;
+            }
+            List<String> deletedIds = owned.stream().map(Activity::getId).toList();
+            ActivityDeleteMessage deleteMessage = new ActivityDeleteMessage();
+            deleteMessage.setActivityIds(deletedIds);
+            deleteMessage.setUserId(userId);
+            deleteMessage.setAction("DELETE_BATCH");
+            long deleted = outboxService.atomically(() -> {
+                long removed = activityRepo.deleteByUserIdAndIdIn(userId, deletedIds);
+                outboxService.enqueue(exchange, deleteRoutingKey, deleteMessage, null);
+                return removed;
+            });
+            if (deleted != owned.size()) {
+                logger.warn("Bulk delete for user {} removed {} of {} activities; rollups may need a rebuild",
+                        userId, deleted, owned.size());
+            }
+            rollupService.recordDeleted(owned);
+        } catch (DataAccessException | TransactionException e) {
+            logger.error("Database error while deleting activities", e);
+            throw new RuntimeException("Database error while deleting activities", e);
+        }
+    }
+
+    public ActivityResponseDto getActivityById(String id, Long userId) {
 
         if (id == null || id.trim().isEmpty()) {
             throw new IllegalArgumentException("Invalid activity id");
         }
 
-        Long userId = jwtService.extractUserId(authHeader);
-
         try {
             Optional<Activity> activity = activityRepo.findByIdAndUserId(id, userId);
             if (activity.isEmpty()) {
@@ -202,8 +330,7 @@ public class ActivityService {
         }
     }
 
-    public List<ActivityResponseDto> getRecentActivities(String token, int limit) {
-        Long userId = jwtService.extractUserId(token);
+    public List<ActivityResponseDto> getRecentActivities(Long userId, int limit) {
         if (userId == null) {
             throw new RuntimeException("Invalid token: userId missing");
         }
@@ -253,9 +380,7 @@ public class ActivityService {
         }
     }
 
-    public List<ActivityResponseDto> getTopCalorieActivities(String authHeader) {
-        Long userId = jwtService.extractUserId(authHeader);
-
+    public List<ActivityResponseDto> getTopCalorieActivities(Long userId) {
         try {
             List<Activity> activities = activityRepo.findTop10ByUserIdOrderByCaloriesBurnedDesc(userId);
             return activities.stream().map(this::mapToResponseDto).toList();
@@ -265,35 +390,31 @@ public class ActivityService {
         }
     }
 
-    public ActivityService.ActivityStatsDto getActivityStats(String authHeader, LocalDateTime startDate, LocalDateTime endDate) {
-        Long userId = jwtService.extractUserId(authHeader);
-
+    public ActivityService.ActivityStatsDto getActivityStats(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
         try {
-            long totalActivities = startDate != null && endDate != null ?
-                    activityRepo.countByUserIdAndStartTimeBetween(userId, startDate, endDate) :
-                    activityRepo.countByUserId(userId);
-
-            List<Activity> activities = startDate != null && endDate != null ?
-                    activityRepo.findByUserIdAndStartTimeBetween(userId, startDate, endDate, Pageable.unpaged()).getContent() :
-                    activityRepo.findByUserId(userId, Pageable.unpaged()).getContent();
+            ActivityStatsView stats = activityRepo.aggregateStats(userId, startDate, endDate)
+                    .orElseGet(ActivityStatsView::new);
 
-            int totalCalories = activities.stream()
-                    .mapToInt(Activity::getCaloriesBurned)
-                    .sum();
+            long totalActivities = stats.getTotalActivities();
+            double avgCaloriesPerActivity = totalActivities > 0 ? (double) stats.getTotalCalories() / totalActivities : 0;
+            double avgDurationPerActivity = totalActivities > 0 ? (double) stats.getTotalDuration() / totalActivities : 0;
 
-            int totalDuration = activities.stream()
-                    .mapToInt(Activity::getDuration)
-                    .sum();
-
-            double avgCaloriesPerActivity = totalActivities > 0 ? (double) totalCalories / totalActivities : 0;
-            double avgDurationPerActivity = totalActivities > 0 ? (double) totalDuration / totalActivities : 0;
+            List<ActivityTypeStatsDto> byType = stats.getByType().stream()
+                    .map(type -> new ActivityTypeStatsDto(type.getActivityType(), type.getCount(),
+                            type.getTotalCalories(), type.getTotalDuration()))
+                    .toList();
 
             return new ActivityStatsDto(
                     totalActivities,
-                    totalCalories,
-                    totalDuration,
+                    stats.getTotalCalories(),
+                    stats.getTotalDuration(),
                     avgCaloriesPerActivity,
-                    avgDurationPerActivity
+                    avgDurationPerActivity,
+                    stats.getMinCalories(),
+                    stats.getMaxCalories(),
+                    stats.getMinDuration(),
+                    stats.getMaxDuration(),
+                    byType
             );
         } catch (DataAccessException e) {
             logger.error("Database error while calculating activity stats", e);
@@ -301,8 +422,7 @@ public class ActivityService {
         }
     }
 
-    public Page<ActivityResponseDto> getActivitiesForAuthenticatedUser(String token, int page, int size, String sortBy, String sortDirection) {
-        Long userId = jwtService.extractUserId(token);
+    public Page<ActivityResponseDto> getActivitiesForAuthenticatedUser(Long userId, int page, int size, String sortBy, String sortDirection) {
         if (userId == null) {
             throw new RuntimeException("Invalid token: userId missing");
         }
@@ -319,52 +439,21 @@ public class ActivityService {
         }
     }
 
-    public Page<ActivityResponseDto> getActivitiesWithFiltersForUser(String token, String activityType, LocalDateTime startDate, LocalDateTime endDate, Integer minDuration, Integer maxDuration, Integer minCalories, Integer maxCalories, int page, int size, String sortBy, String sortDirection) {
-        Long userId = jwtService.extractUserId(token);
+    public Page<ActivityResponseDto> getActivitiesWithFiltersForUser(Long userId, String activityType, LocalDateTime startDate, LocalDateTime endDate, Integer minDuration, Integer maxDuration, Integer minCalories, Integer maxCalories, int page, int size, String sortBy, String sortDirection) {
         if (userId == null) {
             throw new RuntimeException("Invalid token: userId missing");
         }
-
-
+        if (!FILTER_SORT_FIELDS.contains(sortBy)) {
+            throw new IllegalArgumentException("Cannot sort by '" + sortBy + "', allowed: " + FILTER_SORT_FIELDS);
+        }
+        ActivitType type = parseActivityType(activityType);
 
         try {
             Sort.Direction direction = sortDirection.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
             Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
 
-            Page<Activity> activityPage;
-
-            // Simplified filtering - start with basic queries that work
-            if (userId != null) {
-                activityPage = activityRepo.findByUserId(userId, pageable);
-            } else {
-                activityPage = activityRepo.findAll(pageable);
-            }
-
-            // Apply additional filters programmatically if needed
-            if (activityType != null || startDate != null || endDate != null ||
-                    minDuration != null || maxDuration != null || minCalories != null || maxCalories != null) {
-
-                // For complex filtering, get all results and filter in memory
-                // This is less efficient but works for smaller datasets
-                List<Activity> filteredActivities = activityPage.getContent().stream()
-                    .filter(activity -> activityType == null || activity.getActivityType().toString().equalsIgnoreCase(activityType) )
-                    .filter(activity -> startDate == null || !activity.getStartTime().isBefore(startDate))
-                    .filter(activity -> endDate == null || !activity.getStartTime().isAfter(endDate))
-                    .filter(activity -> minDuration == null || activity.getDuration() >= minDuration)
-                    .filter(activity -> maxDuration == null || activity.getDuration() <= maxDuration)
-                    .filter(activity -> minCalories == null || activity.getCaloriesBurned() >= minCalories)
-                    .filter(activity -> maxCalories == null || activity.getCaloriesBurned() <= maxCalories)
-                    .toList();
-
-                // Create a new Page with filtered results (simplified approach)
-                return new PageImpl<>(
-                        filteredActivities.stream().map(this::mapToResponseDto).toList(),
-                        pageable,
-                        filteredActivities.size()
-                );
-            }
-
-
+            Page<Activity> activityPage = activityRepo.findByUserIdWithFilters(userId, type, startDate, endDate,
+                    minDuration, maxDuration, minCalories, maxCalories, pageable);
             return activityPage.map(this::mapToResponseDto);
         } catch (DataAccessException e) {
             logger.error("Database error while fetching filtered activities for user", e);
@@ -373,24 +462,64 @@ public class ActivityService {
 
     }
 
+    private ActivitType parseActivityType(String activityType) {
+        if (activityType == null || activityType.isBlank()) {
+            return null;
+        }
+        try {
+            return ActivitType.valueOf(activityType.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown activity type: " + activityType);
+        }
+    }
 
 
 
 
+
+    @Getter
     public static class ActivityStatsDto {
         private final long totalActivities;
-        private final int totalCalories;
-        private final int totalDuration;
+        private final long totalCalories;
+        private final long totalDuration;
         private final double avgCaloriesPerActivity;
         private final double avgDurationPerActivity;
-
-        public ActivityStatsDto(long totalActivities, int totalCalories, int totalDuration,
-                                double avgCaloriesPerActivity, double avgDurationPerActivity) {
+        private final Integer minCalories;
+        private final Integer maxCalories;
+        private final Integer minDuration;
+        private final Integer maxDuration;
+        private final List<ActivityTypeStatsDto> byType;
+
+        public ActivityStatsDto(long totalActivities, long totalCalories, long totalDuration,
+                                double avgCaloriesPerActivity, double avgDurationPerActivity,
+                                Integer minCalories, Integer maxCalories,
+                                Integer minDuration, Integer maxDuration,
+                                List<ActivityTypeStatsDto> byType) {
             this.totalActivities = totalActivities;
             this.totalCalories = totalCalories;
             this.totalDuration = totalDuration;
             this.avgCaloriesPerActivity = avgCaloriesPerActivity;
             this.avgDurationPerActivity = avgDurationPerActivity;
+            this.minCalories = minCalories;
+            this.maxCalories = maxCalories;
+            this.minDuration = minDuration;
+            this.maxDuration = maxDuration;
+            this.byType = byType;
+        }
+    }
+
+    @Getter
+    public static class ActivityTypeStatsDto {
+        private final ActivitType activityType;
+        private final long count;
+        private final long totalCalories;
+        private final long totalDuration;
+
+        public ActivityTypeStatsDto(ActivitType activityType, long count, long totalCalories, long totalDuration) {
+            this.activityType = activityType;
+            this.count = count;
+            this.totalCalories = totalCalories;
+            this.totalDuration = totalDuration;
         }
     }
 }
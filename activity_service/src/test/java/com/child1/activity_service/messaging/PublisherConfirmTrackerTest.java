@@ -0,0 +1,49 @@
+package com.child1.activity_service.messaging;
+
+import com.child1.activity_service.outbox.OutboxEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class PublisherConfirmTrackerTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+
+    @Test
+    void nackedEventIsRepublishedBySweepNotByTheConfirmCallback() {
+        PublisherConfirmTracker tracker = new PublisherConfirmTracker(rabbitTemplate, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(tracker, "confirmTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(tracker, "maxRepublish", 3);
+        ArgumentCaptor<RabbitTemplate.ConfirmCallback> confirmCallback = ArgumentCaptor.forClass(RabbitTemplate.ConfirmCallback.class);
+        verify(rabbitTemplate).setConfirmCallback(confirmCallback.capture());
+
+        tracker.publish(OutboxEvent.builder()
+                .id("event-1")
+                .exchange("activity-exchange")
+                .routingKey("activity.created")
+                .contentType("application/json")
+                .body(new byte[0])
+                .build());
+        confirmCallback.getValue().confirm(new CorrelationData("event-1"), false, "channel closed");
+
+        verify(rabbitTemplate, times(1)).send(eq("activity-exchange"), eq("activity.created"), any(Message.class), any(CorrelationData.class));
+        assertThat(tracker.pendingCount()).isEqualTo(1);
+
+        tracker.sweepTimeouts();
+
+        verify(rabbitTemplate, times(2)).send(eq("activity-exchange"), eq("activity.created"), any(Message.class), any(CorrelationData.class));
+        assertThat(tracker.pendingCount()).isEqualTo(1);
+        assertThat(tracker.drainFailed()).isEmpty();
+    }
+}
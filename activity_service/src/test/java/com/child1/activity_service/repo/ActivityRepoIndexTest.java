@@ -0,0 +1,93 @@
+package com.child1.activity_service.repo;
+
+import com.child1.activity_service.Model.ActivitType;
+import com.child1.activity_service.Model.Activity;
+import com.child1.activity_service.config.MongoConfig;
+import com.child1.commonsecurity.testing.QueryPlanRecorder;
+import com.mongodb.client.MongoClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Runs every ActivityRepo query against a real MongoDB and fails if {@link QueryPlanRecorder}
+ * finds a COLLSCAN in any of their winning plans.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ActivityRepoIndexTest {
+
+    @Container
+    static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static final Long USER_ID = 7L;
+
+    private final QueryPlanRecorder queryPlans = new QueryPlanRecorder("find", "aggregate", "count", "delete", "findAndModify");
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private ActivityRepo activityRepo;
+
+    @BeforeEach
+    void setUp() {
+        client = queryPlans.connect(MONGO.getConnectionString());
+        mongoTemplate = new MongoTemplate(client, "activity_index_test");
+        MongoConfig.ensureIndexes(mongoTemplate);
+        activityRepo = new MongoRepositoryFactory(mongoTemplate)
+                .getRepository(ActivityRepo.class, new ActivityRepoCustomImpl(mongoTemplate));
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 20; i++) {
+            mongoTemplate.insert(Activity.builder()
+                    .userId(USER_ID + i % 3)
+                    .activityType(ActivitType.values()[i % ActivitType.values().length])
+                    .duration(10 + i)
+                    .caloriesBurned(100 + 10 * i)
+                    .startTime(now.minusDays(i))
+                    .build());
+        }
+        queryPlans.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoTemplate.getDb().drop();
+        client.close();
+    }
+
+    @Test
+    void repositoryQueriesNeverScanTheCollection() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime weekAgo = now.minusDays(7);
+        PageRequest byStartTime = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "startTime"));
+
+        activityRepo.findTop5ByUserIdOrderByStartTimeDesc(USER_ID);
+        activityRepo.findByUserIdOrderByStartTimeDesc(USER_ID);
+        activityRepo.findByUserIdAndStartTimeBetween(USER_ID, weekAgo, now, byStartTime);
+        activityRepo.findByUserId(USER_ID, byStartTime);
+        activityRepo.findTop10ByUserIdOrderByCaloriesBurnedDesc(USER_ID);
+        activityRepo.countByUserIdAndStartTimeBetween(USER_ID, weekAgo, now);
+        activityRepo.countByUserId(USER_ID);
+        activityRepo.findByIdAndUserId("missing", USER_ID);
+        activityRepo.deleteByUserIdAndId(USER_ID, "missing");
+        activityRepo.initializeVersion("missing");
+        activityRepo.findByUserIdAndIdIn(USER_ID, List.of("missing"));
+        activityRepo.deleteByUserIdAndIdIn(USER_ID, List.of("missing"));
+        activityRepo.aggregateStats(USER_ID, weekAgo, now);
+        activityRepo.aggregateStats(USER_ID, null, null);
+        for (String sortBy : List.of("startTime", "caloriesBurned", "duration")) {
+            activityRepo.findByUserIdWithFilters(USER_ID, ActivitType.RUNNING, now.minusDays(30), now,
+                    5, 90, 50, 900, PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, sortBy)));
+        }
+
+        queryPlans.assertNoCollectionScans(mongoTemplate.getDb());
+    }
+}
@@ -3,8 +3,10 @@ package com.child1.ai_service;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 @ComponentScan({"com.child1.ai_service", "com.child1.commonsecurity"})
 public class AiServiceApplication {
 
@@ -0,0 +1,143 @@
+package com.child1.ai_service.config;
+
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes, per activity queue:
+ * <ul>
+ *     <li>{@code ai.listener.queue.depth} / {@code ai.listener.queue.consumers}: ready messages and
+ *     consumers as seen by the broker, refreshed every {@code rabbitmq.listener.metrics-interval-ms}</li>
+ *     <li>{@code ai.listener.consumers.active}: consumers this instance currently runs (moves
+ *     between the configured min and max concurrency)</li>
+ *     <li>{@code ai.listener.consumers.busy} and {@code ai.listener.utilization}: consumers
+ *     inside a listener right now, absolute and as a fraction of the active ones</li>
+ * </ul>
+ * Listeners returning a {@code Mono} only count as busy while dispatching; their outstanding
+ * Gemini calls show up in {@code ai.gemini.in-flight}.
+ */
+@Component
+@Slf4j
+public class ListenerMetrics {
+
+    private final AmqpAdmin amqpAdmin;
+    private final ObjectProvider<RabbitListenerEndpointRegistry> listenerRegistry;
+    private final List<String> queueNames;
+    private final Map<String, AtomicInteger> busy = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> depth = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> brokerConsumers = new ConcurrentHashMap<>();
+
+    public ListenerMetrics(AmqpAdmin amqpAdmin, ObjectProvider<RabbitListenerEndpointRegistry> listenerRegistry,
+                           List<Queue> queues, MeterRegistry meterRegistry) {
+        this.amqpAdmin = amqpAdmin;
+        this.listenerRegistry = listenerRegistry;
+        this.queueNames = queues.stream().map(Queue::getName).toList();
+        for (String queue : queueNames) {
+            AtomicInteger busyConsumers = busy.computeIfAbsent(queue, name -> new AtomicInteger());
+            Gauge.builder("ai.listener.queue.depth", depth.computeIfAbsent(queue, name -> new AtomicLong()), AtomicLong::get)
+                    .description("Messages ready in the queue")
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+            Gauge.builder("ai.listener.queue.consumers", brokerConsumers.computeIfAbsent(queue, name -> new AtomicLong()), AtomicLong::get)
+                    .description("Consumers attached to the queue across all instances")
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+            Gauge.builder("ai.listener.consumers.active", this, metrics -> metrics.activeConsumers(queue))
+                    .description("Consumers this instance runs for the queue")
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+            Gauge.builder("ai.listener.consumers.busy", busyConsumers, AtomicInteger::get)
+                    .description("Consumers currently processing a message from the queue")
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+            Gauge.builder("ai.listener.utilization", this, metrics -> metrics.utilization(queue))
+                    .description("Busy consumers as a fraction of active consumers")
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Advice for the listener containers that counts consumers inside a listener, per queue.
+     */
+    public MethodInterceptor busyTracker() {
+        return invocation -> {
+            AtomicInteger counter = busyCounter(invocation.getArguments());
+            if (counter == null) {
+                return invocation.proceed();
+            }
+            counter.incrementAndGet();
+            try {
+                return invocation.proceed();
+            } finally {
+                counter.decrementAndGet();
+            }
+        };
+    }
+
+    @Scheduled(fixedDelayString = "${rabbitmq.listener.metrics-interval-ms:10000}")
+    public void refreshQueueInfo() {
+        for (String queue : queueNames) {
+            try {
+                QueueInformation info = amqpAdmin.getQueueInfo(queue);
+                if (info != null) {
+                    depth.get(queue).set(info.getMessageCount());
+                    brokerConsumers.get(queue).set(info.getConsumerCount());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not read queue information for {}: {}", queue, e.getMessage());
+            }
+        }
+    }
+
+    private AtomicInteger busyCounter(Object[] arguments) {
+        // SimpleMessageListenerContainer advises invokeListener(Channel, Object data)
+        if (arguments.length < 2) {
+            return null;
+        }
+        Object data = arguments[1];
+        Message message = data instanceof List<?> batch && !batch.isEmpty() ? (Message) batch.get(0)
+                : data instanceof Message single ? single : null;
+        return message != null ? busy.get(message.getMessageProperties().getConsumerQueue()) : null;
+    }
+
+    private double activeConsumers(String queue) {
+        RabbitListenerEndpointRegistry registry = listenerRegistry.getIfAvailable();
+        if (registry == null) {
+            return 0;
+        }
+        int active = 0;
+        for (MessageListenerContainer container : registry.getListenerContainers()) {
+            if (container instanceof SimpleMessageListenerContainer simple
+                    && Arrays.asList(simple.getQueueNames()).contains(queue)) {
+                active += simple.getActiveConsumerCount();
+            }
+        }
+        return active;
+    }
+
+    private double utilization(String queue) {
+        double active = activeConsumers(queue);
+        return active > 0 ? busy.get(queue).get() / active : 0;
+    }
+}
@@ -1,10 +1,82 @@
 package com.child1.ai_service.config;
 
 
+import com.child1.ai_service.model.CachedGeminiResponse;
+import com.child1.ai_service.model.Recommendation;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
 
 @Configuration
 @EnableMongoAuditing
+@Slf4j
 public class MongoConfig {
+
+    // Collections whose declared indexes are created on startup (auto-index-creation is off by default)
+    static final List<Class<?>> INDEXED_DOCUMENTS = List.of(Recommendation.class, CachedGeminiResponse.class);
+
+    @Bean
+    @Order(0)
+    public ApplicationRunner mongoIndexBootstrap(MongoTemplate mongoTemplate) {
+        return args -> ensureIndexes(mongoTemplate);
+    }
+
+    public static void ensureIndexes(MongoTemplate mongoTemplate) {
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> document : INDEXED_DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(document);
+            for (IndexDefinition index : resolver.resolveIndexFor(document)) {
+                try {
+                    indexOps.createIndex(index);
+                } catch (DataAccessException e) {
+                    if (document != Recommendation.class) {
+                        throw e;
+                    }
+                    // Older writes (delete, then save) could leave two recommendations for one activity
+                    log.warn("Removing duplicate recommendations before creating index {}", index.getIndexKeys());
+                    removeDuplicateRecommendations(mongoTemplate);
+                    indexOps.createIndex(index);
+                }
+            }
+        }
+    }
+
+    // Keeps the newest recommendation of every activity
+    static void removeDuplicateRecommendations(MongoTemplate mongoTemplate) {
+        Aggregation duplicates = newAggregation(
+                sort(Sort.Direction.DESC, "createdAt"),
+                group("activityId", "userId").push("_id").as("ids").count().as("count"),
+                match(Criteria.where("count").gt(1)));
+        List<Object> stale = new ArrayList<>();
+        for (Document group : mongoTemplate.aggregate(duplicates, Recommendation.class, Document.class)) {
+            List<?> ids = group.getList("ids", Object.class);
+            stale.addAll(ids.subList(1, ids.size()));
+        }
+        if (!stale.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(stale)), Recommendation.class);
+            log.warn("Removed {} duplicate recommendations", stale.size());
+        }
+    }
 }
@@ -5,15 +5,24 @@ package com.child1.ai_service.config;
 
 import org.springframework.amqp.core.*;
 
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class RabitMqConfig {
 
+    // Messages that exhausted their retries end up in <queue>.dlq through this exchange
+    public static final String DEAD_LETTER_EXCHANGE = "activity-dlx";
+
 
     @Value("${rabbitmq.exchange.name}")
     private String exchange;
@@ -36,6 +45,17 @@ public class RabitMqConfig {
     @Value("${rabbitmq.delete.routing.key}")
     private String deleteRoutingKey;
 
+    @Value("${rabbitmq.retry.max-attempts:4}")
+    private int maxRetryAttempts;
+
+    public static String retryQueue(String queue, int attempt) {
+        return queue + ".retry." + attempt;
+    }
+
+    public static String deadLetterQueue(String queue) {
+        return queue + ".dlq";
+    }
+
 
     @Bean
     public DirectExchange exchange() {
@@ -43,19 +63,55 @@ public class RabitMqConfig {
     }
 
 
+    @Bean
+    public DirectExchange deadLetterExchange() {
+        return new DirectExchange(DEAD_LETTER_EXCHANGE);
+    }
+
+
     @Bean
     public Queue activityQueue() {
-        return QueueBuilder.durable(queue).build();
+        return workQueue(queue);
     }
 
     @Bean
     public Queue activityUpdateQueue() {
-        return QueueBuilder.durable(updateQueue).build();
+        return workQueue(updateQueue);
     }
 
     @Bean
     public Queue activityDeleteQueue() {
-        return QueueBuilder.durable(deleteQueue).build();
+        return workQueue(deleteQueue);
+    }
+
+    /**
+     * For each work queue: a dead-letter queue bound to {@link #DEAD_LETTER_EXCHANGE}, and one
+     * delay queue per retry attempt. A message parked in {@code <queue>.retry.<n>} expires after
+     * its per-message TTL and is dead-lettered straight back to the work queue. Separate queues
+     * per attempt keep short delays from waiting behind long ones.
+     */
+    @Bean
+    public Declarables retryTopology() {
+        List<Declarable> declarables = new ArrayList<>();
+        for (String workQueue : List.of(queue, updateQueue, deleteQueue)) {
+            Queue deadLetters = QueueBuilder.durable(deadLetterQueue(workQueue)).build();
+            declarables.add(deadLetters);
+            declarables.add(BindingBuilder.bind(deadLetters).to(deadLetterExchange()).with(workQueue));
+            for (int attempt = 1; attempt <= maxRetryAttempts; attempt++) {
+                declarables.add(QueueBuilder.durable(retryQueue(workQueue, attempt))
+                        .deadLetterExchange("")
+                        .deadLetterRoutingKey(workQueue)
+                        .build());
+            }
+        }
+        return new Declarables(declarables);
+    }
+
+    private static Queue workQueue(String name) {
+        return QueueBuilder.durable(name)
+                .deadLetterExchange(DEAD_LETTER_EXCHANGE)
+                .deadLetterRoutingKey(name)
+                .build();
     }
 
 
@@ -84,6 +140,73 @@ public class RabitMqConfig {
     }
 
 
+    @Value("${rabbitmq.listener.prefetch:1}")
+    private int prefetch;
+
+    @Value("${rabbitmq.listener.gemini.prefetch:16}")
+    private int geminiPrefetch;
+
+    @Value("${rabbitmq.listener.consecutive-active-trigger:3}")
+    private int consecutiveActiveTrigger;
+
+    @Value("${rabbitmq.listener.consecutive-idle-trigger:10}")
+    private int consecutiveIdleTrigger;
+
+    @Value("${rabbitmq.listener.start-consumer-min-interval-ms:2000}")
+    private long startConsumerMinInterval;
+
+    @Value("${rabbitmq.listener.stop-consumer-min-interval-ms:60000}")
+    private long stopConsumerMinInterval;
+
+
+    /**
+     * Container factory for synchronous listeners. Each listener sets its own {@code min-max}
+     * concurrency; consumers are added while messages keep arriving and stopped again when idle.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            ListenerMetrics listenerMetrics) {
+        return listenerContainerFactory(configurer, connectionFactory, listenerMetrics, prefetch);
+    }
+
+    /**
+     * Container factory for listeners that return a {@code Mono} finishing after the Gemini
+     * call and the save. The consumer thread is released as soon as the call is queued and the
+     * message is acked when the Mono completes, so in-flight work per consumer is bounded by the
+     * prefetch rather than by threads.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory geminiListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            ListenerMetrics listenerMetrics) {
+        SimpleRabbitListenerContainerFactory factory =
+                listenerContainerFactory(configurer, connectionFactory, listenerMetrics, geminiPrefetch);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
+
+    private SimpleRabbitListenerContainerFactory listenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            ListenerMetrics listenerMetrics,
+            int prefetchCount) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setPrefetchCount(prefetchCount);
+        factory.setConsecutiveActiveTrigger(consecutiveActiveTrigger);
+        factory.setConsecutiveIdleTrigger(consecutiveIdleTrigger);
+        factory.setStartConsumerMinInterval(startConsumerMinInterval);
+        factory.setStopConsumerMinInterval(stopConsumerMinInterval);
+        factory.setAdviceChain(listenerMetrics.busyTracker());
+        // Rejected messages go to the dead-letter queue instead of being redelivered in a loop
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
+
     @Bean
     public MessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
@@ -0,0 +1,21 @@
+package com.child1.ai_service.config;
+
+
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+@Configuration
+public class WebClientConfig {
+
+    // Load balancing is added per client so the shared builder still reaches external hosts such as Gemini
+    @Bean
+    public WebClient activityServiceWebClient(WebClient.Builder webClientBuilder,
+                                              ReactorLoadBalancerExchangeFilterFunction loadBalancer) {
+        return webClientBuilder.clone()
+                .baseUrl("http://activity-service")
+                .filter(loadBalancer)
+                .build();
+    }
+}
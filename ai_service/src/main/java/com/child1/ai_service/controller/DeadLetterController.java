@@ -0,0 +1,38 @@
+package com.child1.ai_service.controller;
+
+import com.child1.ai_service.ResourceNotFoundException;
+import com.child1.ai_service.service.DeadLetterService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+// Operator-only; AdminAuthFilter rejects callers without the admin secret
+@RequestMapping("/internal/recommendations/dead-letters")
+public class DeadLetterController {
+
+    private final DeadLetterService deadLetterService;
+
+    public DeadLetterController(DeadLetterService deadLetterService) {
+        this.deadLetterService = deadLetterService;
+    }
+
+    // Dead-lettered message count per activity queue
+    @GetMapping
+    public ResponseEntity<Map<String, Long>> getDeadLetterCounts() {
+        return ResponseEntity.ok(deadLetterService.deadLetterCounts());
+    }
+
+    @PostMapping("/{queue}/replay")
+    public ResponseEntity<Map<String, Object>> replay(
+            @PathVariable String queue,
+            @RequestParam(defaultValue = "100") int max) {
+        try {
+            int replayed = deadLetterService.replay(queue, max);
+            return ResponseEntity.ok(Map.of("queue", queue, "replayed", replayed));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
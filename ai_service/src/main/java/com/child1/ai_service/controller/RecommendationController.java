@@ -3,7 +3,9 @@ package com.child1.ai_service.controller;
 import com.child1.ai_service.ResourceNotFoundException;
 import com.child1.ai_service.model.Recommendation;
 import com.child1.ai_service.service.RecommendationService;
-import com.child1.commonsecurity.JwtService;
+import com.child1.ai_service.service.RecommendationStreamService;
+import com.child1.commonsecurity.JwtPrincipal;
+import com.child1.commonsecurity.web.CurrentUser;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -13,8 +15,12 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.net.URI;
 
@@ -24,12 +30,14 @@ import java.net.URI;
 public class RecommendationController {
 
     private final RecommendationService recommendationService;
-    private final JwtService jwtService;
+
+    private final RecommendationStreamService recommendationStreamService;
 
     @Autowired
-    public RecommendationController(JwtService jwtService, RecommendationService recommendationService) {
+    public RecommendationController(RecommendationService recommendationService,
+                                    RecommendationStreamService recommendationStreamService) {
         this.recommendationService = recommendationService;
-        this.jwtService = jwtService;
+        this.recommendationStreamService = recommendationStreamService;
     }
 
     @GetMapping("/all")
@@ -50,18 +58,12 @@ public class RecommendationController {
 
     @GetMapping
     public ResponseEntity<Page<Recommendation>> getMyRecommendations(
-            @RequestHeader("Authorization") String authorizationHeader,
+            @CurrentUser JwtPrincipal principal,
             @RequestParam(defaultValue = "0") @Min(0) int page,
             @RequestParam(defaultValue = "10") @Min(1) int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDir) {
-        String jwtToken = extractJwtFromHeader(authorizationHeader);
-        System.out.println("Extracted JWT Token: " + jwtToken);
-        if (jwtToken == null || jwtToken.isEmpty()) {
-            return ResponseEntity.badRequest().body(null);
-        }
-        Long userId = jwtService.extractUserId(jwtToken);
-        System.out.println("Extracted User ID: " + userId);
+        Long userId = principal.userId();
 
         Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ?
                 Sort.Direction.DESC : Sort.Direction.ASC;
@@ -73,10 +75,9 @@ public class RecommendationController {
 
     @GetMapping("/{id}")
     public ResponseEntity<Recommendation> getRecommendationById(
-            @RequestHeader("Authorization") String authorizationHeader,
+            @CurrentUser JwtPrincipal principal,
             @PathVariable @NotBlank(message = "ID cannot be blank") String id) {
-        String jwtToken = extractJwtFromHeader(authorizationHeader);
-        Long userId = jwtService.extractUserId(jwtToken);
+        Long userId = principal.userId();
 
         try {
             Recommendation recommendation = recommendationService.getRecommendationById(id);
@@ -94,14 +95,13 @@ public class RecommendationController {
 
     @GetMapping("/activity/{activityId}")
     public ResponseEntity<Page<Recommendation>> getRecommendationsByActivityId(
-            @RequestHeader("Authorization") String authorizationHeader,
+            @CurrentUser JwtPrincipal principal,
             @PathVariable @NotBlank(message = "Activity ID cannot be blank") String activityId,
             @RequestParam(defaultValue = "0") @Min(0) int page,
             @RequestParam(defaultValue = "10") @Min(1) int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDir) {
-        String jwtToken = extractJwtFromHeader(authorizationHeader);
-        Long userId = jwtService.extractUserId(jwtToken);
+        Long userId = principal.userId();
 
         Sort.Direction direction = sortDir.equalsIgnoreCase("desc") ?
                 Sort.Direction.DESC : Sort.Direction.ASC;
@@ -112,12 +112,20 @@ public class RecommendationController {
         return ResponseEntity.ok(recommendations);
     }
 
+    // Generates a fresh recommendation for the activity and streams it as it is written
+    @GetMapping(value = "/activity/{activityId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamRecommendation(
+            @CurrentUser JwtPrincipal principal,
+            @PathVariable @NotBlank(message = "Activity ID cannot be blank") String activityId,
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+        return recommendationStreamService.stream(principal.userId(), activityId, authorization);
+    }
+
     @PostMapping
     public ResponseEntity<Recommendation> createRecommendation(
-            @RequestHeader("Authorization") String authorizationHeader,
+            @CurrentUser JwtPrincipal principal,
             @Valid @RequestBody Recommendation recommendation) {
-        String token = extractJwtFromHeader(authorizationHeader);
-        Long userId = jwtService.extractUserId(token);
+        Long userId = principal.userId();
 
         recommendation.setUserId(userId);
 
@@ -132,12 +140,11 @@ public class RecommendationController {
 
     @PutMapping("/{id}")
     public ResponseEntity<Recommendation> updateRecommendation(
-            @RequestHeader("Authorization") String authorizationHeader,
+            @CurrentUser JwtPrincipal principal,
             @PathVariable @NotBlank(message = "ID cannot be blank") String id,
             @Valid @RequestBody Recommendation recommendation) {
 
-        String token = extractJwtFromHeader(authorizationHeader);
-        Long userId = jwtService.extractUserId(token);
+        Long userId = principal.userId();
 
         try {
             // Verify ownership
@@ -159,11 +166,10 @@ public class RecommendationController {
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteRecommendation(
-            @RequestHeader("Authorization") String authorizationHeader,
+            @CurrentUser JwtPrincipal principal,
             @PathVariable @NotBlank(message = "ID cannot be blank") String id) {
 
-        String jwtToken = extractJwtFromHeader(authorizationHeader);
-        Long userId = jwtService.extractUserId(jwtToken);
+        Long userId = principal.userId();
 
         try {
             // Verify ownership
@@ -181,19 +187,11 @@ public class RecommendationController {
 
     @DeleteMapping("/my-recommendations")
     public ResponseEntity<Void> deleteMyRecommendations(
-            @RequestHeader("Authorization") String authorizationHeader) {
+            @CurrentUser JwtPrincipal principal) {
 
-        String jwtToken = extractJwtFromHeader(authorizationHeader);
-        Long userId = jwtService.extractUserId(jwtToken);
+        Long userId = principal.userId();
 
         recommendationService.deleteRecommendationsByUserId(userId);
         return ResponseEntity.noContent().build();
     }
-
-    private String extractJwtFromHeader(String tokenHeader) {
-        if (tokenHeader != null && tokenHeader.startsWith("Bearer ")) {
-            return tokenHeader.substring(7).trim();
-        }
-        return tokenHeader != null ? tokenHeader.trim() : null;
-    }
 }
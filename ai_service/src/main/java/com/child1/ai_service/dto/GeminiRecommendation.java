@@ -0,0 +1,128 @@
+package com.child1.ai_service.dto;
+
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import lombok.Data;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The recommendation JSON Gemini is asked to produce; {@code activityId} is only set in batched answers.
+ *
+ * Binding is lenient because the model does not always follow the requested shape: a value of the
+ * wrong kind (an object where text is expected, text where an object is expected) is read as null and
+ * dropped later, and a single value is accepted where a list is expected.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GeminiRecommendation {
+
+    @JsonDeserialize(using = LenientText.class)
+    private String activityId;
+
+    @JsonDeserialize(using = AnalysisObject.class)
+    private Analysis analysis;
+
+    @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+    @JsonDeserialize(contentUsing = ImprovementObject.class)
+    private List<Improvement> improvements;
+
+    @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+    @JsonDeserialize(contentUsing = SuggestionObject.class)
+    private List<Suggestion> suggestions;
+
+    @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+    @JsonDeserialize(contentUsing = LenientText.class)
+    private List<String> safety;
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Analysis {
+        @JsonDeserialize(using = LenientText.class)
+        private String overall;
+        @JsonDeserialize(using = LenientText.class)
+        private String pace;
+        @JsonDeserialize(using = LenientText.class)
+        private String heartRate;
+        @JsonDeserialize(using = LenientText.class)
+        private String caloriesBurned;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Improvement {
+        @JsonDeserialize(using = LenientText.class)
+        private String area;
+        @JsonDeserialize(using = LenientText.class)
+        private String recommendation;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Suggestion {
+        @JsonDeserialize(using = LenientText.class)
+        private String workout;
+        @JsonDeserialize(using = LenientText.class)
+        private String description;
+    }
+
+    // Text from any scalar; null (and the value skipped) for objects and arrays
+    public static class LenientText extends StdDeserializer<String> {
+        public LenientText() {
+            super(String.class);
+        }
+
+        @Override
+        public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken().isScalarValue()) {
+                return parser.getValueAsString();
+            }
+            parser.skipChildren();
+            return null;
+        }
+    }
+
+    // Binds objects as usual; null (and the value skipped) for anything else
+    abstract static class ObjectOnly<T> extends StdDeserializer<T> {
+        private final Class<T> type;
+
+        ObjectOnly(Class<T> type) {
+            super(type);
+            this.type = type;
+        }
+
+        @Override
+        public T deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                return context.readValue(parser, type);
+            }
+            parser.skipChildren();
+            return null;
+        }
+    }
+
+    public static class AnalysisObject extends ObjectOnly<Analysis> {
+        public AnalysisObject() {
+            super(Analysis.class);
+        }
+    }
+
+    public static class ImprovementObject extends ObjectOnly<Improvement> {
+        public ImprovementObject() {
+            super(Improvement.class);
+        }
+    }
+
+    public static class SuggestionObject extends ObjectOnly<Suggestion> {
+        public SuggestionObject() {
+            super(Suggestion.class);
+        }
+    }
+}
@@ -46,5 +46,8 @@ public class Activity {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    // activity-service's version of the activity, used to drop stale messages
+    private Long version;
+
 
 }
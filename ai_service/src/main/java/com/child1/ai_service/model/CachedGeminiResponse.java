@@ -0,0 +1,36 @@
+package com.child1.ai_service.model;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Persistent tier of the Gemini response cache; {@code id} is the SHA-256 of the normalized prompt.
+ * MongoDB removes entries once {@code expiresAt} has passed.
+ */
+@Document(collection = "gemini_response_cache")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CachedGeminiResponse {
+
+    @Id
+    private String id;
+
+    private String response;
+
+    // How long the original Gemini call took, reported as saved on every hit
+    private long loadNanos;
+
+    private Instant createdAt;
+
+    // Created on startup by MongoConfig; the name matches the index earlier versions created
+    @Indexed(name = "expiresAt_1", expireAfterSeconds = 0)
+    private Instant expiresAt;
+}
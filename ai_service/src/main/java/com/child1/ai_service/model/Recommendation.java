@@ -8,6 +8,8 @@ import lombok.Data;
 import lombok.Generated;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 
@@ -16,6 +18,14 @@ import java.util.List;
 
 
 @Document(collection = "recommendations")
+// One index per RecommendationRepo access path. activity_user is unique: one recommendation per
+// activity, which the conditional upserts rely on to reject stale versions; it also serves lookups by activityId.
+// featureBucket_createdAt serves RecommendationReuseService's newest-in-bucket lookup.
+@CompoundIndexes({
+        @CompoundIndex(name = "user_created", def = "{'userId': 1, 'createdAt': -1}"),
+        @CompoundIndex(name = "activity_user", def = "{'activityId': 1, 'userId': 1}", unique = true),
+        @CompoundIndex(name = "featureBucket_createdAt", def = "{'featureBucket': 1, 'createdAt': -1}")
+})
 @Data
 public class Recommendation {
 
@@ -48,6 +58,19 @@ public class Recommendation {
     @Size(max = 10)
     private List<@NotBlank String> safety;
 
+    // Quantized features of the activity, used to find recommendations that can be reused
+    private String featureBucket;
+
+    private Integer duration;
+
+    private Integer caloriesBurned;
+
+    // Id of the recommendation this one was copied from; null when generated by Gemini
+    private String reusedFrom;
+
+    // Version of the activity this recommendation was generated for; older versions never overwrite it
+    private Long activityVersion;
+
     @CreatedDate
     private LocalDateTime createdAt;
 
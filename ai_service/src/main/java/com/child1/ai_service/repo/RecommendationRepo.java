@@ -9,11 +9,11 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository
-public interface RecommendationRepo  extends MongoRepository<Recommendation, String> {
+public interface RecommendationRepo  extends MongoRepository<Recommendation, String>, RecommendationRepoCustom {
 
     Page<Recommendation> findByUserId(Long userId, Pageable pageable);
 
@@ -21,7 +21,14 @@ public interface RecommendationRepo  extends MongoRepository<Recommendation, Str
 
     Page<Recommendation> findByUserIdAndActivityId(Long userId, String activityId, Pageable pageable);
 
-    List<Recommendation> findByUserId(Long userId);
+    // Single deleteMany, no documents are loaded
+    long deleteByUserId(Long userId);
 
     Optional<Recommendation> findByActivityIdAndUserId(String activityId, @NotNull(message = "User ID is required") Long userId);
+
+    // Lets an update skip the Gemini call when a newer version already has a recommendation
+    boolean existsByActivityIdAndUserIdAndActivityVersionGreaterThan(String activityId, Long userId, Long activityVersion);
+
+    // Single deleteMany for a batch of deleted activities
+    long deleteByUserIdAndActivityIdIn(Long userId, Collection<String> activityIds);
 }
@@ -0,0 +1,14 @@
+package com.child1.ai_service.repo;
+
+import com.child1.ai_service.model.Recommendation;
+
+public interface RecommendationRepoCustom {
+
+    /**
+     * Writes the recommendation for its activity with one upsert on activityId + userId, unless
+     * the stored one was generated for a newer activity version; a recommendation without a version
+     * only replaces one without a version either. The existing recommendation stays
+     * readable until it is replaced. Returns false if the write was dropped as stale.
+     */
+    boolean upsertIfNotStale(Recommendation recommendation);
+}
@@ -0,0 +1,55 @@
+package com.child1.ai_service.repo;
+
+import com.child1.ai_service.model.Recommendation;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+
+public class RecommendationRepoCustomImpl implements RecommendationRepoCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public RecommendationRepoCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public boolean upsertIfNotStale(Recommendation recommendation) {
+        Criteria criteria = Criteria.where("activityId").is(recommendation.getActivityId())
+                .and("userId").is(recommendation.getUserId());
+        Long version = recommendation.getActivityVersion();
+        if (version != null) {
+            criteria.orOperator(Criteria.where("activityVersion").is(null), Criteria.where("activityVersion").lte(version));
+        } else {
+            // Without a version the write cannot be ordered, so it never replaces a versioned one
+            criteria.and("activityVersion").is(null);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .set("activityType", recommendation.getActivityType())
+                .set("recommendationText", recommendation.getRecommendationText())
+                .set("improvements", recommendation.getImprovements())
+                .set("suggestions", recommendation.getSuggestions())
+                .set("safety", recommendation.getSafety())
+                .set("featureBucket", recommendation.getFeatureBucket())
+                .set("duration", recommendation.getDuration())
+                .set("caloriesBurned", recommendation.getCaloriesBurned())
+                .set("reusedFrom", recommendation.getReusedFrom())
+                .set("updatedAt", now)
+                .setOnInsert("createdAt", now);
+        if (version != null) {
+            update.set("activityVersion", version);
+        }
+        try {
+            mongoTemplate.upsert(Query.query(criteria), update, Recommendation.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // The filter missed because a newer version is stored; the insert then hit the unique index
+            return false;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.child1.ai_service.service;
+
+
+import com.child1.ai_service.ResourceNotFoundException;
+import com.child1.ai_service.model.Activity;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads activities from activity-service on behalf of the calling user, whose token is forwarded
+ * so activity-service applies its own ownership checks.
+ */
+@Service
+public class ActivityClient {
+
+    private final WebClient activityServiceWebClient;
+
+    @Value("${common.internal-secret}")
+    private String internalSecret;
+
+    public ActivityClient(@Qualifier("activityServiceWebClient") WebClient activityServiceWebClient) {
+        this.activityServiceWebClient = activityServiceWebClient;
+    }
+
+    /**
+     * @throws ResourceNotFoundException (as an error signal) if the activity does not exist for the user
+     */
+    public Mono<Activity> getActivity(String activityId, String authorization) {
+        return activityServiceWebClient.get()
+                .uri("/api/v1/activities/{id}", activityId)
+                .header(HttpHeaders.AUTHORIZATION, authorization)
+                .header("X-Internal-Auth", internalSecret)
+                .retrieve()
+                .onStatus(status -> status.value() == HttpStatus.NOT_FOUND.value(),
+                        response -> response.releaseBody().then(Mono.error(
+                                new ResourceNotFoundException("Activity with id " + activityId + " not found"))))
+                .bodyToMono(Activity.class);
+    }
+}
@@ -0,0 +1,50 @@
+package com.child1.ai_service.service;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Guards the operator endpoints under {@code /internal/}. The gateway adds {@code X-Internal-Auth}
+ * to every authenticated user request, so those endpoints additionally need {@code X-Admin-Auth}
+ * matching {@code ai.admin.secret}; with no secret configured they are closed.
+ */
+@Component
+public class AdminAuthFilter extends OncePerRequestFilter {
+
+    public static final String ADMIN_PATH_PREFIX = "/internal/";
+
+    private final byte[] adminSecret;
+
+    public AdminAuthFilter(@Value("${ai.admin.secret:}") String adminSecret) {
+        this.adminSecret = adminSecret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(ADMIN_PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws IOException, ServletException {
+        String adminHeader = request.getHeader("X-Admin-Auth");
+
+        if (adminSecret.length == 0 || adminHeader == null
+                || !MessageDigest.isEqual(adminSecret, adminHeader.getBytes(StandardCharsets.UTF_8))) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,93 @@
+package com.child1.ai_service.service;
+
+
+import com.child1.ai_service.ResourceNotFoundException;
+import com.child1.ai_service.config.RabitMqConfig;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.GetResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inspects and replays the dead-letter queues of the activity queues.
+ */
+@Service
+@Slf4j
+public class DeadLetterService {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final AmqpAdmin amqpAdmin;
+    private final List<String> workQueues;
+
+    @Value("${rabbitmq.dlq.replay-batch-size:50}")
+    private int batchSize;
+
+    public DeadLetterService(RabbitTemplate rabbitTemplate, AmqpAdmin amqpAdmin, List<Queue> queues) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.amqpAdmin = amqpAdmin;
+        this.workQueues = queues.stream().map(Queue::getName).toList();
+    }
+
+    public Map<String, Long> deadLetterCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String queue : workQueues) {
+            QueueInformation info = amqpAdmin.getQueueInfo(RabitMqConfig.deadLetterQueue(queue));
+            counts.put(queue, info != null ? info.getMessageCount() : 0L);
+        }
+        return counts;
+    }
+
+    /**
+     * Moves up to {@code max} messages from {@code <queue>.dlq} back to {@code queue}, in batches,
+     * with a fresh retry budget. Each batch is acked on the dead-letter queue only after it has
+     * been republished on the same channel; if the channel fails first, the batch stays put.
+     *
+     * @return the number of messages moved
+     */
+    public int replay(String queue, int max) {
+        if (!workQueues.contains(queue)) {
+            throw new ResourceNotFoundException("Unknown queue: " + queue);
+        }
+        if (max <= 0) {
+            throw new IllegalArgumentException("max must be positive");
+        }
+        String deadLetters = RabitMqConfig.deadLetterQueue(queue);
+        int moved = 0;
+        while (moved < max) {
+            int limit = Math.min(batchSize, max - moved);
+            Integer batch = rabbitTemplate.execute(channel -> {
+                int count = 0;
+                long lastTag = -1;
+                GetResponse response;
+                while (count < limit && (response = channel.basicGet(deadLetters, false)) != null) {
+                    AMQP.BasicProperties props = response.getProps();
+                    Map<String, Object> headers = props.getHeaders() != null ? new HashMap<>(props.getHeaders()) : new HashMap<>();
+                    headers.remove(MessageRetryHandler.RETRY_COUNT_HEADER);
+                    channel.basicPublish("", queue, props.builder().headers(headers).expiration(null).build(), response.getBody());
+                    lastTag = response.getEnvelope().getDeliveryTag();
+                    count++;
+                }
+                if (count > 0) {
+                    channel.basicAck(lastTag, true);
+                }
+                return count;
+            });
+            if (batch == null || batch == 0) {
+                break;
+            }
+            moved += batch;
+        }
+        log.info("Replayed {} dead-lettered messages back to {}", moved, queue);
+        return moved;
+    }
+}
@@ -0,0 +1,205 @@
+package com.child1.ai_service.service;
+
+
+import com.child1.ai_service.dto.GeminiRecommendation;
+import com.child1.ai_service.model.Activity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Answers several activities with one Gemini call.
+ *
+ * Prompts are collected until {@code gemini.batch.max-size} are waiting or
+ * {@code gemini.batch.max-wait} has passed, then sent as one prompt that asks for a JSON array of
+ * recommendations keyed by activity id, so the format instructions are paid for once per batch.
+ * Items missing from the answer, or malformed in it, fall back to their own single request; a
+ * failed batch call fails all of its items. With {@code gemini.batch.max-size} at {@code 1} (the
+ * default) every prompt is sent on its own.
+ *
+ * Batch sizes are published as {@code ai.gemini.batch.size} and fallbacks as
+ * {@code ai.gemini.batch.fallbacks}.
+ */
+@Component
+@Slf4j
+public class GeminiBatcher {
+
+    private final GeminiService geminiService;
+    private final GeminiResponseParser responseParser;
+    private final Sinks.Many<PendingItem> items = Sinks.many().unicast().onBackpressureBuffer();
+    private final int maxSize;
+    private final DistributionSummary batchSize;
+    private final Counter fallbacks;
+
+    public GeminiBatcher(GeminiService geminiService, GeminiResponseParser responseParser, MeterRegistry meterRegistry,
+                         @Value("${gemini.batch.max-size:1}") int maxSize,
+                         @Value("${gemini.batch.max-wait:250ms}") Duration maxWait) {
+        this.geminiService = geminiService;
+        this.responseParser = responseParser;
+        this.maxSize = maxSize;
+        this.batchSize = DistributionSummary.builder("ai.gemini.batch.size")
+                .description("Activities sent to Gemini in one batched prompt")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("ai.gemini.batch.fallbacks")
+                .description("Batched activities re-sent on their own because the batched answer was unusable")
+                .register(meterRegistry);
+        if (maxSize > 1) {
+            items.asFlux()
+                    .bufferTimeout(maxSize, maxWait)
+                    .flatMap(this::send)
+                    .subscribe();
+        }
+    }
+
+    /**
+     * Emits the response for the activity: either its slice of a batched answer (the recommendation
+     * JSON only) or, when sent on its own through {@code single}, the raw Gemini response.
+     */
+    public Mono<String> submit(Activity activity, String prompt, Function<String, Mono<String>> single) {
+        if (maxSize <= 1) {
+            return single.apply(prompt);
+        }
+        return Mono.create(sink -> items.emitNext(new PendingItem(activity, prompt, single, sink),
+                Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1))));
+    }
+
+    private Mono<Void> send(List<PendingItem> batch) {
+        batchSize.record(batch.size());
+        if (batch.size() == 1) {
+            return sendAlone(batch.get(0));
+        }
+        Map<String, PendingItem> byKey = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingItem item = batch.get(i);
+            String id = item.activity.getId();
+            byKey.put(id != null && !byKey.containsKey(id) ? id : "item-" + i, item);
+        }
+        return geminiService.generate(createBatchPrompt(byKey))
+                .map(this::split)
+                .doOnError(e -> byKey.values().forEach(item -> item.sink.error(e)))
+                .onErrorResume(e -> Mono.empty())
+                .flatMapMany(results -> Flux.fromIterable(byKey.entrySet())
+                        .flatMap(entry -> {
+                            String text = results.get(entry.getKey());
+                            if (text != null) {
+                                entry.getValue().sink.success(text);
+                                return Mono.empty();
+                            }
+                            fallbacks.increment();
+                            return sendAlone(entry.getValue());
+                        }))
+                .then();
+    }
+
+    private Mono<Void> sendAlone(PendingItem item) {
+        return item.single.apply(item.prompt)
+                .doOnNext(item.sink::success)
+                .switchIfEmpty(Mono.<String>fromRunnable(() -> item.sink.error(new IllegalStateException("Empty response from Gemini API"))))
+                .doOnError(item.sink::error)
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * Recommendation JSON per activity key; items without a usable recommendation are left out.
+     */
+    private Map<String, String> split(String response) {
+        Map<String, String> results = new HashMap<>();
+        try {
+            for (GeminiRecommendation item : responseParser.readRecommendations(responseParser.textOf(response))) {
+                if (item != null && item.getActivityId() != null && item.getAnalysis() != null
+                        && !results.containsKey(item.getActivityId())) {
+                    String key = item.getActivityId();
+                    item.setActivityId(null);
+                    results.put(key, responseParser.write(item));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Also covers a blocked answer, which comes back as candidates without parts
+            log.warn("Unparseable batched Gemini response, sending items on their own", e);
+        }
+        if (results.isEmpty()) {
+            log.warn("Batched Gemini response holds no usable recommendations, sending items on their own");
+        }
+        return results;
+    }
+
+    private static String createBatchPrompt(Map<String, PendingItem> byKey) {
+        StringBuilder activities = new StringBuilder();
+        byKey.forEach((key, item) -> {
+            Activity activity = item.activity;
+            activities.append(String.format("- Activity ID: %s | Activity Type: %s | Duration: %d minutes | Calories Burned: %d | Additional Metrics: %s%n",
+                    key,
+                    activity.getActivityType(),
+                    activity.getDuration(),
+                    activity.getCaloriesBurned(),
+                    activity.getAdditionalMetrics() != null ? new TreeMap<>(activity.getAdditionalMetrics()) : Map.of()));
+        });
+        return String.format("""
+        Analyze each of the following fitness activities and provide detailed recommendations.
+        Respond with a JSON array only, containing one element per activity in the following EXACT JSON format:
+        [
+          {
+            \"activityId\": \"Activity ID exactly as given below\",
+            \"analysis\": {
+              \"overall\": \"Overall analysis here\",
+              \"pace\": \"Pace analysis here\",
+              \"heartRate\": \"Heart rate analysis here\",
+              \"caloriesBurned\": \"Calories analysis here\"
+            },
+            \"improvements\": [
+              {
+                \"area\": \"Area name\",
+                \"recommendation\": \"Detailed recommendation\"
+              }
+            ],
+            \"suggestions\": [
+              {
+                \"workout\": \"Workout name\",
+                \"description\": \"Detailed workout description\"
+              }
+            ],
+            \"safety\": [
+              \"Safety point 1\",
+              \"Safety point 2\"
+            ]
+          }
+        ]
+
+        Analyze these activities:
+        %s
+        Provide detailed analysis for each activity focusing on performance, improvements, next workout suggestions, and safety guidelines.
+        Ensure the response follows the EXACT JSON format shown above.
+        """, activities);
+    }
+
+    private static final class PendingItem {
+        private final Activity activity;
+        private final String prompt;
+        private final Function<String, Mono<String>> single;
+        private final MonoSink<String> sink;
+
+        private PendingItem(Activity activity, String prompt, Function<String, Mono<String>> single, MonoSink<String> sink) {
+            this.activity = activity;
+            this.prompt = prompt;
+            this.single = single;
+            this.sink = sink;
+        }
+    }
+}
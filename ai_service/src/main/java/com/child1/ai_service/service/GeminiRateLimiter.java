@@ -0,0 +1,244 @@
+package com.child1.ai_service.service;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps Gemini calls inside the provider's quota instead of discovering it through 429s.
+ *
+ * A call first needs a concurrency slot. The number of slots adapts AIMD-style: it grows by
+ * roughly one per round of successful calls and is multiplied by
+ * {@code gemini.concurrency.backoff-ratio} when Gemini answers 429/5xx or times out (at most once
+ * per {@code gemini.concurrency.decrease-cooldown}), staying between
+ * {@code gemini.concurrency.min} and {@code gemini.max-in-flight}.
+ *
+ * It then reserves one request and its estimated tokens from two token buckets refilled at
+ * {@code gemini.rate-limit.requests-per-minute} and {@code gemini.rate-limit.tokens-per-minute},
+ * and waits until the reservation is covered. A {@code Retry-After} from Gemini pauses all
+ * reservations until it has passed.
+ *
+ * Time spent waiting is recorded in {@code ai.gemini.throttle.wait}; the current slot count is
+ * {@code ai.gemini.concurrency.limit}.
+ */
+@Component
+@Slf4j
+public class GeminiRateLimiter {
+
+    public enum Outcome {
+        SUCCESS,
+        OVERLOADED,
+        IGNORED
+    }
+
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long decreaseCooldownNanos;
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    private final Timer throttleWait;
+    private final Counter overloaded;
+
+    private double limit;
+    private int inFlight;
+    private long pausedUntil = System.nanoTime();
+    private long lastDecrease = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+
+    public GeminiRateLimiter(
+            @Value("${gemini.rate-limit.requests-per-minute:60}") double requestsPerMinute,
+            @Value("${gemini.rate-limit.tokens-per-minute:250000}") double tokensPerMinute,
+            @Value("${gemini.concurrency.min:1}") int minLimit,
+            @Value("${gemini.concurrency.initial:8}") int initialLimit,
+            @Value("${gemini.max-in-flight:32}") int maxLimit,
+            @Value("${gemini.concurrency.backoff-ratio:0.5}") double backoffRatio,
+            @Value("${gemini.concurrency.decrease-cooldown:5s}") Duration decreaseCooldown,
+            MeterRegistry meterRegistry) {
+        this.requests = new TokenBucket(requestsPerMinute);
+        this.tokens = new TokenBucket(tokensPerMinute);
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.decreaseCooldownNanos = decreaseCooldown.toNanos();
+
+        this.throttleWait = Timer.builder("ai.gemini.throttle.wait")
+                .description("Time Gemini calls waited for a concurrency slot and rate-limit budget")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.overloaded = Counter.builder("ai.gemini.overloaded")
+                .description("Gemini calls answered with 429/5xx or timed out")
+                .register(meterRegistry);
+        Gauge.builder("ai.gemini.concurrency.limit", this, GeminiRateLimiter::currentLimit)
+                .description("Concurrent Gemini calls currently allowed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Emits a permit once a slot is free and the request fits the rate limits. The caller must
+     * {@link Permit#release release} it when the call finishes.
+     */
+    public Mono<Permit> acquire(int estimatedTokens) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.<Permit>create(this::enter)
+                    .flatMap(permit -> {
+                        long wait = reserve(estimatedTokens);
+                        return wait > 0
+                                ? Mono.delay(Duration.ofNanos(wait)).thenReturn(permit)
+                                        .doOnCancel(() -> permit.release(Outcome.IGNORED, null))
+                                : Mono.just(permit);
+                    })
+                    .doOnNext(permit -> throttleWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * Reads a {@code Retry-After} header given either in seconds or as an HTTP date.
+     */
+    public static Duration retryAfter(HttpHeaders headers) {
+        String value = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                Duration until = Duration.between(ZonedDateTime.now(),
+                        ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return until.isNegative() ? Duration.ZERO : until;
+            } catch (RuntimeException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private void enter(MonoSink<Permit> sink) {
+        Waiter waiter = new Waiter(sink, new Permit());
+        // Only fires before the permit reached the subscriber; a permit granted to a cancelled
+        // waiter is dropped by the sink, so its slot goes back here
+        sink.onCancel(() -> {
+            boolean queued;
+            synchronized (this) {
+                queued = waiters.remove(waiter);
+            }
+            if (!queued) {
+                waiter.permit().release(Outcome.IGNORED, null);
+            }
+        });
+        boolean granted;
+        synchronized (this) {
+            granted = inFlight < (int) limit;
+            if (granted) {
+                inFlight++;
+            } else {
+                waiters.add(waiter);
+            }
+        }
+        if (granted) {
+            sink.success(waiter.permit());
+        }
+    }
+
+    private synchronized long reserve(int estimatedTokens) {
+        long now = System.nanoTime();
+        long wait = Math.max(requests.reserve(1, now), tokens.reserve(estimatedTokens, now));
+        return Math.max(wait, pausedUntil - now);
+    }
+
+    private void release(Outcome outcome, Duration retryAfter) {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            long now = System.nanoTime();
+            if (outcome == Outcome.SUCCESS) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            } else if (outcome == Outcome.OVERLOADED) {
+                overloaded.increment();
+                if (now - lastDecrease >= decreaseCooldownNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecrease = now;
+                    log.warn("Gemini overloaded, concurrency limit lowered to {}", (int) limit);
+                }
+                if (retryAfter != null) {
+                    pausedUntil = Math.max(pausedUntil, now + retryAfter.toNanos());
+                    log.warn("Gemini asked to retry after {}, pausing new calls", retryAfter);
+                }
+            }
+            while (inFlight < (int) limit && !waiters.isEmpty()) {
+                inFlight++;
+                granted.add(waiters.poll());
+            }
+        }
+        granted.forEach(waiter -> waiter.sink().success(waiter.permit()));
+    }
+
+    private synchronized double currentLimit() {
+        return limit;
+    }
+
+    private record Waiter(MonoSink<Permit> sink, Permit permit) {
+    }
+
+    public final class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        /**
+         * Returns the slot and feeds the call's outcome into the limit; later calls are no-ops.
+         */
+        public void release(Outcome outcome, Duration retryAfter) {
+            if (released.compareAndSet(false, true)) {
+                GeminiRateLimiter.this.release(outcome, retryAfter);
+            }
+        }
+    }
+
+    /**
+     * Refills continuously up to one minute's worth. Reservations may overdraw it; the overdraft
+     * is returned as the time to wait before sending.
+     */
+    private static final class TokenBucket {
+        private final double capacity;
+        private final double perNano;
+        private double available;
+        private long lastRefill = System.nanoTime();
+
+        private TokenBucket(double perMinute) {
+            this.capacity = perMinute;
+            this.perNano = perMinute / TimeUnit.MINUTES.toNanos(1);
+            this.available = perMinute;
+        }
+
+        private long reserve(double cost, long now) {
+            available = Math.min(capacity, available + (now - lastRefill) * perNano);
+            lastRefill = now;
+            // A single request larger than the whole bucket would otherwise wait forever
+            available -= Math.min(cost, capacity);
+            return available >= 0 ? 0 : (long) (-available / perNano);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.child1.ai_service.service;
+
+
+import com.child1.ai_service.model.CachedGeminiResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Serves repeated prompts without calling Gemini again.
+ *
+ * Entries are keyed by a SHA-256 of the prompt with whitespace normalized. They live in memory
+ * (at most {@code gemini.cache.max-size}, for {@code gemini.cache.ttl}) and, with
+ * {@code gemini.cache.persistent}, in the {@code gemini_response_cache} collection, so they outlive
+ * a restart and are shared between instances. Concurrent misses for the same prompt share one call.
+ *
+ * Lookups are counted under {@code ai.gemini.cache.requests} tagged by {@code result}
+ * (memory, mongo, miss), and the Gemini time they avoided under {@code ai.gemini.cache.saved}.
+ */
+@Component
+@Slf4j
+public class GeminiResponseCache {
+
+    private final Cache<String, CachedGeminiResponse> memory;
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final boolean persistent;
+    private final Duration ttl;
+    private final Counter memoryHits;
+    private final Counter mongoHits;
+    private final Counter misses;
+    private final Counter savedSeconds;
+
+    public GeminiResponseCache(
+            MongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${gemini.cache.enabled:true}") boolean enabled,
+            @Value("${gemini.cache.persistent:false}") boolean persistent,
+            @Value("${gemini.cache.max-size:10000}") long maxSize,
+            @Value("${gemini.cache.ttl:7d}") Duration ttl) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.persistent = enabled && persistent;
+        this.ttl = ttl;
+        this.memory = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "ai.gemini.responses");
+        this.memoryHits = requests(meterRegistry, "memory");
+        this.mongoHits = requests(meterRegistry, "mongo");
+        this.misses = requests(meterRegistry, "miss");
+        this.savedSeconds = Counter.builder("ai.gemini.cache.saved")
+                .description("Gemini call time avoided by serving cached responses")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Emits the cached response for the prompt, or the loader's response, which is then cached.
+     */
+    public Mono<String> get(String prompt, Function<String, Mono<String>> loader) {
+        if (!enabled) {
+            return loader.apply(prompt);
+        }
+        return Mono.defer(() -> {
+            String key = keyOf(prompt);
+            CachedGeminiResponse cached = memory.getIfPresent(key);
+            if (cached != null) {
+                return hit(memoryHits, cached);
+            }
+            // Other callers may still be waiting on the shared load, so cancelling must not stop it
+            return Mono.fromFuture(pending(key, prompt, loader), true);
+        });
+    }
+
+    /**
+     * Drops a response that turned out to be unusable so the next request asks Gemini again.
+     */
+    public void evict(String prompt) {
+        if (!enabled) {
+            return;
+        }
+        String key = keyOf(prompt);
+        memory.invalidate(key);
+        if (persistent) {
+            Mono.fromRunnable(() -> mongoTemplate.remove(Query.query(Criteria.where("_id").is(key)), CachedGeminiResponse.class))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe(null, e -> log.warn("Could not evict cached Gemini response {}", key, e));
+        }
+    }
+
+    // Joins the load already running for the key, or starts one that leaves inFlight once it completes
+    private CompletableFuture<String> pending(String key, String prompt, Function<String, Mono<String>> loader) {
+        CompletableFuture<String> started = inFlight.computeIfAbsent(key, k -> fromMongo(key)
+                .switchIfEmpty(Mono.defer(() -> {
+                    misses.increment();
+                    long start = System.nanoTime();
+                    return loader.apply(prompt)
+                            .doOnNext(response -> store(key, response, System.nanoTime() - start));
+                }))
+                .toFuture());
+        started.whenComplete((response, e) -> inFlight.remove(key, started));
+        return started;
+    }
+
+    private Mono<String> fromMongo(String key) {
+        if (!persistent) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> mongoTemplate.findById(key, CachedGeminiResponse.class))
+                .subscribeOn(Schedulers.boundedElastic())
+                // The TTL monitor runs about once a minute, so expired entries may still be there
+                .filter(entry -> entry.getExpiresAt() == null || entry.getExpiresAt().isAfter(Instant.now()))
+                .doOnNext(entry -> memory.put(key, entry))
+                .flatMap(entry -> hit(mongoHits, entry))
+                .onErrorResume(e -> {
+                    log.warn("Gemini response cache lookup failed, calling Gemini", e);
+                    return Mono.empty();
+                });
+    }
+
+    private void store(String key, String response, long loadNanos) {
+        Instant now = Instant.now();
+        CachedGeminiResponse entry = new CachedGeminiResponse(key, response, loadNanos, now, now.plus(ttl));
+        memory.put(key, entry);
+        if (persistent) {
+            Mono.fromRunnable(() -> mongoTemplate.save(entry))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe(null, e -> log.warn("Could not persist cached Gemini response {}", key, e));
+        }
+    }
+
+    private Mono<String> hit(Counter counter, CachedGeminiResponse entry) {
+        counter.increment();
+        savedSeconds.increment(entry.getLoadNanos() / (double) TimeUnit.SECONDS.toNanos(1));
+        return Mono.just(entry.getResponse());
+    }
+
+    static String keyOf(String prompt) {
+        String normalized = prompt.strip().replaceAll("\\s+", " ");
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ai.gemini.cache.requests")
+                .description("Gemini response cache lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
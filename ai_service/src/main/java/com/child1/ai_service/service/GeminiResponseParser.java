@@ -0,0 +1,240 @@
+package com.child1.ai_service.service;
+
+
+import com.child1.ai_service.dto.GeminiRecommendation;
+import com.child1.ai_service.model.Activity;
+import com.child1.ai_service.model.Recommendation;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns Gemini responses into recommendations with the application's shared {@link ObjectMapper}.
+ *
+ * The envelope is read with a streaming parser that stops at {@code candidates[0].content.parts[0].text};
+ * the JSON inside that text is bound straight into {@link GeminiRecommendation}, without building trees.
+ */
+@Component
+@Slf4j
+public class GeminiResponseParser {
+
+    // Top-level fields that only a Gemini response envelope has
+    private static final Set<String> ENVELOPE_FIELDS = Set.of("promptFeedback", "usageMetadata", "modelVersion", "responseId");
+
+    private final JsonFactory jsonFactory;
+    private final ObjectReader recommendationReader;
+    private final ObjectReader recommendationListReader;
+    private final ObjectMapper objectMapper;
+
+    public GeminiResponseParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+        this.recommendationReader = objectMapper.readerFor(GeminiRecommendation.class);
+        this.recommendationListReader = objectMapper.readerForListOf(GeminiRecommendation.class);
+    }
+
+    /**
+     * Turns a Gemini response, or the text of one, into a recommendation for the activity.
+     *
+     * @throws IllegalStateException if the response holds no usable recommendation
+     */
+    public Recommendation parse(Activity activity, String response) {
+        if (response == null || response.isEmpty()) {
+            throw new IllegalStateException("Empty response from Gemini API for activity ID: " + activity.getId());
+        }
+        String text = textOf(response);
+        if (text.isEmpty()) {
+            throw new IllegalStateException("No text found in Gemini response for activity ID: " + activity.getId());
+        }
+        GeminiRecommendation parsed;
+        try {
+            parsed = readRecommendation(text);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unparseable Gemini response for activity ID: " + activity.getId(), e);
+        }
+        if (parsed == null || parsed.getAnalysis() == null) {
+            throw new IllegalStateException("No activity data found in response for activity ID: " + activity.getId());
+        }
+        log.debug("Parsed recommendation for activity ID: {}", activity.getId());
+        return toRecommendation(activity, parsed);
+    }
+
+    /**
+     * Text of the first candidate of a raw Gemini response. Anything else, such as text already
+     * extracted from a response, is returned unchanged.
+     *
+     * @throws IllegalStateException if the response has no candidates (e.g. a blocked prompt) or no parts
+     */
+    public String textOf(String response) {
+        try {
+            String text = candidateText(response);
+            return text != null ? text : response;
+        } catch (IOException e) {
+            return response;
+        }
+    }
+
+    /**
+     * Text carried by one chunk of a streamed Gemini response; empty for chunks without text, such
+     * as the final one that only reports usage.
+     */
+    public String chunkTextOf(String chunk) {
+        try {
+            String text = candidateText(chunk);
+            return text != null ? text : "";
+        } catch (IOException | IllegalStateException e) {
+            return "";
+        }
+    }
+
+    // Null if the JSON is not a Gemini response envelope
+    private String candidateText(String json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            boolean envelope = false;
+            String blockReason = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("candidates".equals(field)) {
+                    return firstPartText(parser);
+                }
+                if ("promptFeedback".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    blockReason = parser.<JsonNode>readValueAsTree().path("blockReason").asText(null);
+                }
+                envelope |= ENVELOPE_FIELDS.contains(field);
+                parser.skipChildren();
+            }
+            if (envelope) {
+                throw new IllegalStateException(blockReason != null
+                        ? "Gemini blocked the prompt: " + blockReason
+                        : "No candidates found in Gemini response");
+            }
+            return null;
+        }
+    }
+
+    private static String firstPartText(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY || parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalStateException("No candidates found in Gemini response");
+        }
+        if (!moveToField(parser, "content") || parser.currentToken() != JsonToken.START_OBJECT
+                || !moveToField(parser, "parts") || parser.currentToken() != JsonToken.START_ARRAY
+                || parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalStateException("No parts found in Gemini response");
+        }
+        return moveToField(parser, "text") && parser.currentToken() == JsonToken.VALUE_STRING ? parser.getText() : "";
+    }
+
+    /**
+     * Binds the JSON object in the text, ignoring code fences or prose around it; null if there is none.
+     */
+    public GeminiRecommendation readRecommendation(String text) throws IOException {
+        int first = text.indexOf('{');
+        int last = text.lastIndexOf('}');
+        if (first == -1 || last <= first) {
+            return null;
+        }
+        return recommendationReader.readValue(text.substring(first, last + 1));
+    }
+
+    /**
+     * Binds the JSON array of a batched answer; empty if the text holds no array.
+     */
+    public List<GeminiRecommendation> readRecommendations(String text) throws IOException {
+        int first = text.indexOf('[');
+        int last = text.lastIndexOf(']');
+        if (first == -1 || last <= first) {
+            return List.of();
+        }
+        return recommendationListReader.readValue(text.substring(first, last + 1));
+    }
+
+    public String write(GeminiRecommendation recommendation) throws IOException {
+        return objectMapper.writeValueAsString(recommendation);
+    }
+
+    // Advances to the value of the named field in the current object, skipping everything before it
+    private static boolean moveToField(JsonParser parser, String name) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            boolean found = name.equals(parser.currentName());
+            parser.nextToken();
+            if (found) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static Recommendation toRecommendation(Activity activity, GeminiRecommendation parsed) {
+        StringBuilder analysis = new StringBuilder();
+        GeminiRecommendation.Analysis parts = parsed.getAnalysis();
+        if (parts != null) {
+            appendLine(analysis, "Overall: ", parts.getOverall());
+            appendLine(analysis, "Pace: ", parts.getPace());
+            appendLine(analysis, "Heart Rate: ", parts.getHeartRate());
+            appendLine(analysis, "Calories Burned: ", parts.getCaloriesBurned());
+        }
+        List<String> improvements = new ArrayList<>();
+        if (parsed.getImprovements() != null) {
+            for (GeminiRecommendation.Improvement improvement : parsed.getImprovements()) {
+                addPair(improvements, improvement == null ? null : improvement.getArea(),
+                        improvement == null ? null : improvement.getRecommendation());
+            }
+        }
+        List<String> suggestions = new ArrayList<>();
+        if (parsed.getSuggestions() != null) {
+            for (GeminiRecommendation.Suggestion suggestion : parsed.getSuggestions()) {
+                addPair(suggestions, suggestion == null ? null : suggestion.getWorkout(),
+                        suggestion == null ? null : suggestion.getDescription());
+            }
+        }
+        List<String> safety = new ArrayList<>();
+        if (parsed.getSafety() != null) {
+            for (String point : parsed.getSafety()) {
+                if (point != null && !point.isEmpty()) {
+                    safety.add(point);
+                }
+            }
+        }
+
+        Recommendation recommendation = new Recommendation();
+        recommendation.setActivityId(activity.getId());
+        recommendation.setUserId(activity.getUserId());
+        recommendation.setActivityType(String.valueOf(activity.getActivityType()));
+        recommendation.setDuration(activity.getDuration());
+        recommendation.setCaloriesBurned(activity.getCaloriesBurned());
+        recommendation.setRecommendationText(analysis.toString().trim());
+        recommendation.setImprovements(improvements);
+        recommendation.setSuggestions(suggestions);
+        recommendation.setSafety(safety);
+        return recommendation;
+    }
+
+    private static void appendLine(StringBuilder builder, String label, String value) {
+        if (value != null) {
+            builder.append(label).append(value).append('\n');
+        }
+    }
+
+    private static void addPair(List<String> target, String name, String detail) {
+        String left = name == null ? "" : name;
+        String right = detail == null ? "" : detail;
+        if (!left.isEmpty() || !right.isEmpty()) {
+            target.add(left + ": " + right);
+        }
+    }
+}
@@ -1,49 +1,206 @@
 package com.child1.ai_service.service;
 
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Calls the Gemini API without blocking.
+ *
+ * Every request goes through one pipeline that runs at most {@code gemini.max-in-flight} calls
+ * at a time; further requests wait in the pipeline, not on a thread. Within that bound
+ * {@link GeminiRateLimiter} decides when a call may go out. Calls rejected with 429/503 are
+ * retried through the limiter up to {@code gemini.rate-limit.max-throttle-retries} times. In-flight
+ * and queued calls are published as {@code ai.gemini.in-flight} and {@code ai.gemini.queued}.
+ */
 @Service
+@Slf4j
 public class GeminiService {
 
 
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_CHUNK = new ParameterizedTypeReference<>() {
+    };
+
     private final WebClient webClient;
+    private final GeminiRateLimiter rateLimiter;
+    private final Sinks.Many<PendingCall> calls = Sinks.many().unicast().onBackpressureBuffer();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
 
 
     @Value("${gemini.api.key}")
     private String apiKey;
     @Value("${gemini.api.url}")
     private String apiUrl ;
-    public GeminiService(WebClient.Builder webClientBuilder) {
+    // Defaults to gemini.api.url with :generateContent replaced by :streamGenerateContent?alt=sse
+    @Value("${gemini.api.stream-url:}")
+    private String streamUrl;
+    @Value("${gemini.timeout:60s}")
+    private Duration timeout;
+    @Value("${gemini.rate-limit.max-throttle-retries:3}")
+    private int maxThrottleRetries;
+    // Output is budgeted up front since its size is only known after the call
+    @Value("${gemini.rate-limit.expected-output-tokens:1024}")
+    private int expectedOutputTokens;
+
+    public GeminiService(WebClient.Builder webClientBuilder, GeminiRateLimiter rateLimiter, MeterRegistry meterRegistry,
+                         @Value("${gemini.max-in-flight:32}") int maxInFlight) {
         this.webClient = webClientBuilder.build();
+        this.rateLimiter = rateLimiter;
+        Gauge.builder("ai.gemini.in-flight", inFlight, AtomicInteger::get)
+                .description("Gemini requests currently awaiting a response")
+                .register(meterRegistry);
+        Gauge.builder("ai.gemini.queued", queued, AtomicInteger::get)
+                .description("Gemini requests waiting for a free slot")
+                .register(meterRegistry);
+        calls.asFlux()
+                .flatMap(this::execute, maxInFlight)
+                .subscribe();
     }
 
+    /**
+     * Sends the prompt once a slot is free and emits the raw response body.
+     */
+    public Mono<String> generate(String prompt) {
+        return Mono.create(sink -> {
+            queued.incrementAndGet();
+            // Listener threads emit concurrently; retry briefly instead of failing on contention
+            calls.emitNext(new PendingCall(prompt, sink), Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+        });
+    }
+
+    /**
+     * Blocking variant for callers outside the messaging pipeline.
+     */
     public String getResponse(String prompt) {
+        String response = generate(prompt).block();
+        if (response == null || response.isEmpty()) {
+            return "No response from Gemini API";
+        }
+        return response;
+    }
+
+    /**
+     * Streams the response from Gemini's streaming endpoint, one raw response chunk (a partial
+     * envelope) per element, within the same rate and concurrency limits as {@link #generate}.
+     * The timeout applies to the gap between chunks.
+     */
+    public Flux<String> stream(String prompt) {
+        int estimatedTokens = prompt.length() / 4 + expectedOutputTokens;
+        return rateLimiter.acquire(estimatedTokens)
+                .flatMapMany(permit -> {
+                    inFlight.incrementAndGet();
+                    return webClient.post()
+                            .uri(streamUrl() + (streamUrl().contains("?") ? "&" : "?") + "key=" + apiKey)
+                            .header("Content-Type", "application/json")
+                            .accept(MediaType.TEXT_EVENT_STREAM)
+                            .bodyValue(payloadFor(prompt))
+                            .retrieve()
+                            .bodyToFlux(SSE_CHUNK)
+                            .mapNotNull(ServerSentEvent::data)
+                            .timeout(timeout)
+                            .doOnComplete(() -> permit.release(GeminiRateLimiter.Outcome.SUCCESS, null))
+                            .doOnError(e -> permit.release(outcomeOf(e), e instanceof WebClientResponseException responseException
+                                    ? GeminiRateLimiter.retryAfter(responseException.getHeaders()) : null))
+                            .doFinally(signal -> {
+                                inFlight.decrementAndGet();
+                                permit.release(GeminiRateLimiter.Outcome.IGNORED, null);
+                            });
+                });
+    }
+
+    private String streamUrl() {
+        if (streamUrl != null && !streamUrl.isBlank()) {
+            return streamUrl;
+        }
+        return apiUrl.replace(":generateContent", ":streamGenerateContent") + "?alt=sse";
+    }
+
+    private Mono<Void> execute(PendingCall call) {
+        queued.decrementAndGet();
+        int estimatedTokens = call.prompt.length() / 4 + expectedOutputTokens;
+        return rateLimiter.acquire(estimatedTokens)
+                .flatMap(permit -> {
+                    inFlight.incrementAndGet();
+                    return send(call.prompt)
+                            .doOnSuccess(response -> permit.release(GeminiRateLimiter.Outcome.SUCCESS, null))
+                            .doOnError(e -> permit.release(outcomeOf(e), e instanceof WebClientResponseException responseException
+                                    ? GeminiRateLimiter.retryAfter(responseException.getHeaders()) : null))
+                            .doFinally(signal -> {
+                                inFlight.decrementAndGet();
+                                permit.release(GeminiRateLimiter.Outcome.IGNORED, null);
+                            });
+                })
+                .retryWhen(Retry.max(maxThrottleRetries).filter(GeminiService::isThrottled))
+                .doOnNext(call.sink::success)
+                .switchIfEmpty(Mono.<String>fromRunnable(() -> call.sink.error(new IllegalStateException("Empty response from Gemini API"))))
+                .doOnError(call.sink::error)
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private static GeminiRateLimiter.Outcome outcomeOf(Throwable error) {
+        if (error instanceof WebClientResponseException responseException) {
+            HttpStatusCode status = responseException.getStatusCode();
+            return status.value() == 429 || status.is5xxServerError()
+                    ? GeminiRateLimiter.Outcome.OVERLOADED : GeminiRateLimiter.Outcome.IGNORED;
+        }
+        return error instanceof TimeoutException ? GeminiRateLimiter.Outcome.OVERLOADED : GeminiRateLimiter.Outcome.IGNORED;
+    }
+
+    private static boolean isThrottled(Throwable error) {
+        return error instanceof WebClientResponseException responseException
+                && (responseException.getStatusCode().value() == 429 || responseException.getStatusCode().value() == 503);
+    }
+
+    private Mono<String> send(String prompt) {
+        return webClient.post()
+                .uri(apiUrl + "?key=" + apiKey)
+                .header("Content-Type", "application/json")
+                .bodyValue(payloadFor(prompt))
+                .retrieve()
+                .bodyToMono(String.class)
+                .filter(response -> !response.isEmpty())
+                .timeout(timeout);
+    }
+
+    private static Map<String, Object> payloadFor(String prompt) {
         // Gemini API expects a specific JSON structure. Fixing the payload structure.
-        Map<String, Object> payload = Map.of(
+        return Map.of(
                 "contents", new Object[]{
                         Map.of("parts", new Object[]{
                                 Map.of("text", prompt)
                         })
                 }
         );
-
-        String response = webClient.post()
-                .uri(apiUrl + "?key=" + apiKey)
-                .header("Content-Type", "application/json")
-                .bodyValue(payload)
-                .retrieve()
-                .bodyToMono(String.class)
-                .block();
-        if (response == null || response.isEmpty()) {
-            return "No response from Gemini API";
-        }
-        return response;
     }
 
+    private static final class PendingCall {
+        private final String prompt;
+        private final MonoSink<String> sink;
 
+        private PendingCall(String prompt, MonoSink<String> sink) {
+            this.prompt = prompt;
+            this.sink = sink;
+        }
+    }
 }
@@ -0,0 +1,95 @@
+package com.child1.ai_service.service;
+
+
+import com.child1.ai_service.config.RabitMqConfig;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Gives a message that failed processing another attempt later instead of dropping it.
+ *
+ * Attempt {@code n} is parked in {@code <queue>.retry.<n>} for
+ * {@code initial-delay * multiplier^(n-1)}, spread by {@code +/- jitter}, and then flows back to
+ * its queue. After {@code rabbitmq.retry.max-attempts} retries the message is rejected and
+ * dead-lettered to {@code <queue>.dlq}, from where it can be replayed.
+ */
+@Component
+@Slf4j
+public class MessageRetryHandler {
+
+    public static final String RETRY_COUNT_HEADER = "x-retry-count";
+    private static final String LAST_ERROR_HEADER = "x-last-error";
+
+    private final RabbitTemplate rabbitTemplate;
+
+    @Value("${rabbitmq.retry.max-attempts:4}")
+    private int maxAttempts;
+    @Value("${rabbitmq.retry.initial-delay-ms:2000}")
+    private long initialDelayMs;
+    @Value("${rabbitmq.retry.multiplier:2.0}")
+    private double multiplier;
+    @Value("${rabbitmq.retry.jitter:0.2}")
+    private double jitter;
+
+    public MessageRetryHandler(RabbitTemplate rabbitTemplate) {
+        this.rabbitTemplate = rabbitTemplate;
+    }
+
+    @PostConstruct
+    void validate() {
+        if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("rabbitmq.retry.jitter must be at least 0 and below 1, was " + jitter);
+        }
+    }
+
+    /**
+     * Schedules the next attempt, after which the caller should ack the original delivery.
+     *
+     * @throws AmqpRejectAndDontRequeueException when the retries are used up, so the container
+     *                                           dead-letters the message
+     */
+    public void retryOrDeadLetter(Message message, Throwable cause) {
+        String queue = message.getMessageProperties().getConsumerQueue();
+        Integer previous = message.getMessageProperties().getHeader(RETRY_COUNT_HEADER);
+        int attempt = (previous != null ? previous : 0) + 1;
+        if (queue == null || attempt > maxAttempts) {
+            log.error("Giving up on message from {} after {} retries, dead-lettering it", queue, attempt - 1);
+            throw new AmqpRejectAndDontRequeueException("Retries exhausted", cause);
+        }
+        long delay = delayFor(attempt);
+        Message retry = MessageBuilder.fromClonedMessage(message)
+                .setHeader(RETRY_COUNT_HEADER, attempt)
+                .setHeader(LAST_ERROR_HEADER, String.valueOf(cause.getMessage()))
+                .setExpiration(String.valueOf(delay))
+                .build();
+        rabbitTemplate.send("", RabitMqConfig.retryQueue(queue, attempt), retry);
+        log.warn("Message from {} failed ({}), retry {} of {} in {} ms",
+                queue, cause.getMessage(), attempt, maxAttempts, delay);
+    }
+
+    /**
+     * {@link #retryOrDeadLetter} for reactive listeners: completes once the retry is parked and
+     * errors when the message should be dead-lettered instead.
+     */
+    public Mono<Void> retryOrDeadLetterAsync(Message message, Throwable cause) {
+        return Mono.fromRunnable(() -> retryOrDeadLetter(message, cause))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    private long delayFor(int attempt) {
+        double base = initialDelayMs * Math.pow(multiplier, attempt - 1);
+        double spread = jitter > 0 ? 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter) : 1;
+        return Math.max(1, Math.round(base * spread));
+    }
+}
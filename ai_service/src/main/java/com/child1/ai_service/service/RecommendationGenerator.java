@@ -0,0 +1,90 @@
+package com.child1.ai_service.service;
+
+
+import com.child1.ai_service.model.Activity;
+import com.child1.ai_service.model.Recommendation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Turns an activity into a Gemini-generated recommendation.
+ *
+ * Prompts go through {@link GeminiResponseCache}; on a miss they are handed to
+ * {@link GeminiBatcher}, which may answer several activities with one Gemini call.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RecommendationGenerator {
+
+    private final GeminiService geminiService;
+
+    private final GeminiResponseCache responseCache;
+
+    private final GeminiBatcher batcher;
+
+    private final GeminiResponseParser responseParser;
+
+    /**
+     * Emits the recommendation on a thread that may block, so callers can save it directly.
+     */
+    public Mono<Recommendation> generate(Activity activity) {
+        String prompt = createPromptForActivity(activity);
+        return responseCache.get(prompt, p -> batcher.submit(activity, p, geminiService::generate))
+                .publishOn(Schedulers.boundedElastic())
+                .map(response -> responseParser.parse(activity, response))
+                // An unusable response must not be served again from the cache
+                .doOnError(e -> responseCache.evict(prompt));
+    }
+
+    String createPromptForActivity(Activity activity) {
+        return String.format("""
+        Analyze this fitness activity and provide detailed recommendations in the following EXACT JSON format:
+        {
+          \"analysis\": {
+            \"overall\": \"Overall analysis here\",
+            \"pace\": \"Pace analysis here\",
+            \"heartRate\": \"Heart rate analysis here\",
+            \"caloriesBurned\": \"Calories analysis here\"
+          },
+          \"improvements\": [
+            {
+              \"area\": \"Area name\",
+              \"recommendation\": \"Detailed recommendation\"
+            }
+          ],
+          \"suggestions\": [
+            {
+              \"workout\": \"Workout name\",
+              \"description\": \"Detailed workout description\"
+            }
+          ],
+          \"safety\": [
+            \"Safety point 1\",
+            \"Safety point 2\"
+          ]
+        }
+
+        Analyze this activity:
+        Activity Type: %s
+        Duration: %d minutes
+        Calories Burned: %d
+        Additional Metrics: %s
+        Provide detailed analysis focusing on performance, improvements, next workout suggestions, and safety guidelines.
+        Ensure the response follows the EXACT JSON format shown above.
+        """,
+                activity.getActivityType(),
+                activity.getDuration(),
+                activity.getCaloriesBurned(),
+                // Sorted so equal metrics always give the same prompt, and the same cache key
+                activity.getAdditionalMetrics() != null ? new TreeMap<>(activity.getAdditionalMetrics()) : Map.of()
+        );
+    }
+
+}
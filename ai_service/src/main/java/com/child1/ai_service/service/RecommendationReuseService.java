@@ -0,0 +1,203 @@
+package com.child1.ai_service.service;
+
+
+import com.child1.ai_service.model.Activity;
+import com.child1.ai_service.model.Recommendation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reuses an earlier recommendation for activities that only differ by a few minutes or calories.
+ *
+ * An activity's features are quantized into a bucket key: type, duration band
+ * ({@code recommendation.reuse.duration-band} minutes), calorie band
+ * ({@code recommendation.reuse.calorie-band}) and the {@code additionalMetrics} listed in
+ * {@code recommendation.reuse.metrics} as {@code name:band} pairs. With
+ * {@code recommendation.reuse.policy} set to {@code reuse} the newest Gemini-generated
+ * recommendation in the bucket is copied as is; with {@code template} the source activity's duration
+ * and calories are also replaced by the new ones in the text. {@code off} (the default) disables it.
+ *
+ * Every recommendation is counted under {@code ai.recommendations.generated}, tagged by
+ * {@code source} (gemini or reused), which gives the share of Gemini calls avoided.
+ */
+@Service
+@Slf4j
+public class RecommendationReuseService {
+
+    private final MongoTemplate mongoTemplate;
+    private final String policy;
+    private final int durationBand;
+    private final int calorieBand;
+    private final Map<String, Double> metricBands;
+    private final boolean sameUserOnly;
+    private final Counter generated;
+    private final Counter reused;
+
+    public RecommendationReuseService(
+            MongoTemplate mongoTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${recommendation.reuse.policy:off}") String policy,
+            @Value("${recommendation.reuse.duration-band:5}") int durationBand,
+            @Value("${recommendation.reuse.calorie-band:50}") int calorieBand,
+            @Value("${recommendation.reuse.metrics:pace:0.5,heartRate:10}") List<String> metrics,
+            @Value("${recommendation.reuse.same-user-only:false}") boolean sameUserOnly) {
+        this.mongoTemplate = mongoTemplate;
+        this.policy = policy.toLowerCase(Locale.ROOT);
+        this.durationBand = Math.max(1, durationBand);
+        this.calorieBand = Math.max(1, calorieBand);
+        this.metricBands = parseMetricBands(metrics);
+        this.sameUserOnly = sameUserOnly;
+        this.generated = counter(meterRegistry, "gemini");
+        this.reused = counter(meterRegistry, "reused");
+    }
+
+    /**
+     * Quantized feature key of the activity, e.g. {@code RUNNING|d6|c6|pace:-|heartRate:15}.
+     */
+    public String bucketOf(Activity activity) {
+        StringBuilder key = new StringBuilder()
+                .append(activity.getActivityType())
+                .append("|d").append(band(activity.getDuration(), durationBand))
+                .append("|c").append(band(activity.getCaloriesBurned(), calorieBand));
+        Map<String, Object> metrics = activity.getAdditionalMetrics() != null ? activity.getAdditionalMetrics() : Map.of();
+        metricBands.forEach((name, band) -> key.append('|').append(name).append(':').append(metricBand(metrics.get(name), band)));
+        return key.toString();
+    }
+
+    /**
+     * Emits a copy of another activity's earlier recommendation for the bucket, or nothing when reuse is
+     * off or the bucket has no Gemini-generated recommendation yet. Lookup failures are logged and
+     * treated as a miss.
+     */
+    public Mono<Recommendation> findReusable(Activity activity, String bucket) {
+        if (!isEnabled()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> {
+                    // An update that stays in its bucket must not copy its own recommendation onto itself
+                    Criteria criteria = Criteria.where("featureBucket").is(bucket).and("reusedFrom").is(null)
+                            .and("activityId").ne(activity.getId());
+                    if (sameUserOnly) {
+                        criteria.and("userId").is(activity.getUserId());
+                    }
+                    return mongoTemplate.findOne(Query.query(criteria)
+                            .with(Sort.by(Sort.Direction.DESC, "createdAt")), Recommendation.class);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(source -> copyFor(source, activity, bucket))
+                .doOnNext(copy -> reused.increment())
+                .onErrorResume(e -> {
+                    log.warn("Recommendation reuse lookup failed for bucket {}, calling Gemini", bucket, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Records that a recommendation had to be generated by Gemini.
+     */
+    public void recordGenerated() {
+        generated.increment();
+    }
+
+    private boolean isEnabled() {
+        return "reuse".equals(policy) || "template".equals(policy);
+    }
+
+    private Recommendation copyFor(Recommendation source, Activity activity, String bucket) {
+        Recommendation copy = new Recommendation();
+        copy.setActivityId(activity.getId());
+        copy.setUserId(activity.getUserId());
+        copy.setActivityType(String.valueOf(activity.getActivityType()));
+        copy.setFeatureBucket(bucket);
+        copy.setDuration(activity.getDuration());
+        copy.setCaloriesBurned(activity.getCaloriesBurned());
+        copy.setReusedFrom(source.getId());
+        if ("template".equals(policy)) {
+            copy.setRecommendationText(retemplate(source.getRecommendationText(), source, activity));
+            copy.setImprovements(source.getImprovements() == null ? null
+                    : source.getImprovements().stream().map(text -> retemplate(text, source, activity)).toList());
+            copy.setSuggestions(source.getSuggestions() == null ? null
+                    : source.getSuggestions().stream().map(text -> retemplate(text, source, activity)).toList());
+        } else {
+            copy.setRecommendationText(source.getRecommendationText());
+            copy.setImprovements(source.getImprovements());
+            copy.setSuggestions(source.getSuggestions());
+        }
+        copy.setSafety(source.getSafety());
+        return copy;
+    }
+
+    // Swaps the source activity's figures for the new ones where the text quotes them with a unit
+    private static String retemplate(String text, Recommendation source, Activity activity) {
+        if (text == null) {
+            return null;
+        }
+        String result = replaceQuantity(text, source.getDuration(), activity.getDuration(), "\\s*-?\\s*min");
+        return replaceQuantity(result, source.getCaloriesBurned(), activity.getCaloriesBurned(), "\\s*-?\\s*(?:k?cal|calories)");
+    }
+
+    private static String replaceQuantity(String text, Integer from, Integer to, String unit) {
+        if (from == null || to == null || from.equals(to)) {
+            return text;
+        }
+        Matcher matcher = Pattern.compile("\\b" + from + "(?=" + unit + ")", Pattern.CASE_INSENSITIVE).matcher(text);
+        return matcher.replaceAll(String.valueOf(to));
+    }
+
+    private static String band(Integer value, int size) {
+        return value == null ? "-" : String.valueOf(value / size);
+    }
+
+    private static String metricBand(Object value, double size) {
+        if (value == null) {
+            return "-";
+        }
+        if (value instanceof Number number) {
+            return String.valueOf((long) Math.floor(number.doubleValue() / size));
+        }
+        try {
+            return String.valueOf((long) Math.floor(Double.parseDouble(value.toString().trim()) / size));
+        } catch (NumberFormatException e) {
+            return value.toString().trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static Map<String, Double> parseMetricBands(List<String> metrics) {
+        Map<String, Double> bands = new LinkedHashMap<>();
+        for (String metric : metrics) {
+            String[] parts = metric.trim().split(":");
+            if (parts[0].isEmpty()) {
+                continue;
+            }
+            double band = parts.length > 1 ? Double.parseDouble(parts[1].trim()) : 1.0;
+            if (band <= 0) {
+                throw new IllegalArgumentException("recommendation.reuse.metrics band must be positive: " + metric);
+            }
+            bands.put(parts[0], band);
+        }
+        return bands;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("ai.recommendations.generated")
+                .description("Recommendations produced, by whether Gemini was called")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
@@ -13,7 +13,6 @@ import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 
 import java.time.LocalDateTime;
-import java.util.List;
 
 
 @Service
@@ -104,11 +103,8 @@ public class RecommendationService {
     public void deleteRecommendationsByUserId(Long userId) {
         validateLongId(userId);
 
-        List<Recommendation> userRecommendations = recommendationRepo.findByUserId(userId);
-        if (!userRecommendations.isEmpty()) {
-            recommendationRepo.deleteAll(userRecommendations);
-        } else {
-        }
+        long deleted = recommendationRepo.deleteByUserId(userId);
+        log.info("Deleted {} recommendations for user {}", deleted, userId);
     }
 
     // Private validation methods
@@ -0,0 +1,98 @@
+package com.child1.ai_service.service;
+
+
+import com.child1.ai_service.ResourceNotFoundException;
+import com.child1.ai_service.model.Activity;
+import com.child1.ai_service.model.Recommendation;
+import com.child1.ai_service.repo.RecommendationRepo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates a recommendation while the client watches, as server-sent events.
+ *
+ * Text is forwarded in {@code chunk} events as Gemini produces it; once the stream completes the
+ * full text is parsed and saved, replacing any earlier recommendation for the activity, and sent
+ * in a final {@code recommendation} event. Failures end the stream with an {@code error} event.
+ * Time to the first chunk is published as {@code ai.recommendations.stream.first-chunk}.
+ */
+@Service
+@Slf4j
+public class RecommendationStreamService {
+
+    private final ActivityClient activityClient;
+    private final GeminiService geminiService;
+    private final RecommendationGenerator recommendationGenerator;
+    private final GeminiResponseParser responseParser;
+    private final RecommendationReuseService reuseService;
+    private final RecommendationRepo recommendationRepo;
+    private final Timer firstChunk;
+
+    public RecommendationStreamService(ActivityClient activityClient, GeminiService geminiService,
+                                       RecommendationGenerator recommendationGenerator, GeminiResponseParser responseParser,
+                                       RecommendationReuseService reuseService, RecommendationRepo recommendationRepo,
+                                       MeterRegistry meterRegistry) {
+        this.activityClient = activityClient;
+        this.geminiService = geminiService;
+        this.recommendationGenerator = recommendationGenerator;
+        this.responseParser = responseParser;
+        this.reuseService = reuseService;
+        this.recommendationRepo = recommendationRepo;
+        this.firstChunk = Timer.builder("ai.recommendations.stream.first-chunk")
+                .description("Time from a stream request to the first recommendation text sent to the client")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public Flux<ServerSentEvent<Object>> stream(Long userId, String activityId, String authorization) {
+        long start = System.nanoTime();
+        return activityClient.getActivity(activityId, authorization)
+                .filter(activity -> userId.equals(activity.getUserId()))
+                .switchIfEmpty(Mono.error(new ResourceNotFoundException("Activity with id " + activityId + " not found")))
+                .flatMapMany(activity -> {
+                    StringBuilder text = new StringBuilder();
+                    Flux<ServerSentEvent<Object>> chunks = geminiService.stream(recommendationGenerator.createPromptForActivity(activity))
+                            .map(responseParser::chunkTextOf)
+                            .filter(chunk -> !chunk.isEmpty())
+                            .doOnNext(chunk -> {
+                                if (text.length() == 0) {
+                                    firstChunk.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                                }
+                                text.append(chunk);
+                            })
+                            .map(chunk -> ServerSentEvent.<Object>builder(chunk).event("chunk").build());
+                    Mono<ServerSentEvent<Object>> saved = Mono.fromCallable(() -> save(activity, text.toString()))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .map(recommendation -> ServerSentEvent.<Object>builder(recommendation)
+                                    .id(recommendation.getId())
+                                    .event("recommendation")
+                                    .build());
+                    return chunks.concatWith(saved);
+                })
+                .onErrorResume(e -> {
+                    log.error("Error streaming recommendation for activity ID: {}", activityId, e);
+                    String message = e instanceof ResourceNotFoundException ? e.getMessage() : "Recommendation could not be generated";
+                    return Flux.just(ServerSentEvent.<Object>builder(Map.of("message", message)).event("error").build());
+                });
+    }
+
+    private Recommendation save(Activity activity, String text) {
+        Recommendation recommendation = responseParser.parse(activity, text);
+        recommendation.setFeatureBucket(reuseService.bucketOf(activity));
+        recommendation.setActivityVersion(activity.getVersion());
+        reuseService.recordGenerated();
+        if (!recommendationRepo.upsertIfNotStale(recommendation)) {
+            throw new IllegalStateException("Activity " + activity.getId() + " changed while its recommendation was generated");
+        }
+        return recommendationRepo.findByActivityIdAndUserId(activity.getId(), activity.getUserId()).orElse(recommendation);
+    }
+}
@@ -0,0 +1,70 @@
+package com.child1.ai_service.service;
+
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Debounces activity updates so only the latest one in {@code rabbitmq.listener.update.debounce}
+ * is turned into a Gemini call.
+ *
+ * Every update waits out the window; if a newer update for the same activity arrived meanwhile,
+ * or the activity was deleted, it is reported as superseded and its message can be acked without
+ * work. Those skipped calls are counted in {@code ai.recommendations.updates.coalesced}. Updates are
+ * only coalesced within one instance; a zero window turns debouncing off.
+ */
+@Component
+public class UpdateCoalescer {
+
+    private final ConcurrentMap<String, Long> latest = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Duration window;
+    private final Counter coalesced;
+
+    public UpdateCoalescer(@Value("${rabbitmq.listener.update.debounce:3s}") Duration window,
+                           MeterRegistry meterRegistry) {
+        this.window = window;
+        this.coalesced = Counter.builder("ai.recommendations.updates.coalesced")
+                .description("Activity updates skipped because a newer update or a delete superseded them")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Emits {@code true} after the window if this is still the latest update of the activity,
+     * {@code false} if it was superseded.
+     */
+    public Mono<Boolean> awaitLatest(Long userId, String activityId) {
+        if (window.isZero() || window.isNegative()) {
+            return Mono.just(true);
+        }
+        String key = keyOf(userId, activityId);
+        long ticket = sequence.incrementAndGet();
+        latest.put(key, ticket);
+        return Mono.delay(window).map(tick -> {
+            boolean isLatest = latest.remove(key, ticket);
+            if (!isLatest) {
+                coalesced.increment();
+            }
+            return isLatest;
+        });
+    }
+
+    /**
+     * Supersedes any update of the activity still waiting out its window.
+     */
+    public void cancel(Long userId, String activityId) {
+        latest.remove(keyOf(userId, activityId));
+    }
+
+    private static String keyOf(Long userId, String activityId) {
+        return userId + ":" + activityId;
+    }
+}
@@ -0,0 +1,85 @@
+package com.child1.ai_service.controller;
+
+import com.child1.ai_service.service.AdminAuthFilter;
+import com.child1.ai_service.service.DeadLetterService;
+import com.child1.ai_service.service.InternalAuthFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class DeadLetterControllerTest {
+
+    private static final String INTERNAL_SECRET = "internal-secret";
+    private static final String ADMIN_SECRET = "admin-secret";
+
+    private final DeadLetterService deadLetterService = mock(DeadLetterService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        InternalAuthFilter internalAuthFilter = new InternalAuthFilter();
+        ReflectionTestUtils.setField(internalAuthFilter, "internalSecret", INTERNAL_SECRET);
+        mockMvc = MockMvcBuilders.standaloneSetup(new DeadLetterController(deadLetterService))
+                .addFilters(internalAuthFilter, new AdminAuthFilter(ADMIN_SECRET))
+                .build();
+    }
+
+    @Test
+    void userRequestsThroughTheGatewayAreRejected() throws Exception {
+        // What the gateway forwards for any signed-in user
+        mockMvc.perform(get("/internal/recommendations/dead-letters")
+                        .header("Authorization", "Bearer user-token")
+                        .header("X-Internal-Auth", INTERNAL_SECRET))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/internal/recommendations/dead-letters/activity-queue/replay")
+                        .header("Authorization", "Bearer user-token")
+                        .header("X-Internal-Auth", INTERNAL_SECRET))
+                .andExpect(status().isForbidden());
+
+        verify(deadLetterService, never()).deadLetterCounts();
+        verify(deadLetterService, never()).replay(anyString(), anyInt());
+    }
+
+    @Test
+    void wrongAdminSecretIsRejected() throws Exception {
+        mockMvc.perform(get("/internal/recommendations/dead-letters")
+                        .header("X-Internal-Auth", INTERNAL_SECRET)
+                        .header("X-Admin-Auth", "guess"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void adminCanReplay() throws Exception {
+        when(deadLetterService.replay("activity-queue", 100)).thenReturn(3);
+
+        mockMvc.perform(post("/internal/recommendations/dead-letters/activity-queue/replay")
+                        .header("X-Internal-Auth", INTERNAL_SECRET)
+                        .header("X-Admin-Auth", ADMIN_SECRET))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.replayed").value(3));
+    }
+
+    @Test
+    void endpointsAreClosedWithoutAConfiguredSecret() throws Exception {
+        MockMvc unconfigured = MockMvcBuilders.standaloneSetup(new DeadLetterController(deadLetterService))
+                .addFilters(new AdminAuthFilter(""))
+                .build();
+
+        unconfigured.perform(get("/internal/recommendations/dead-letters").header("X-Admin-Auth", ""))
+                .andExpect(status().isForbidden());
+        verify(deadLetterService, never()).deadLetterCounts();
+    }
+}
@@ -0,0 +1,93 @@
+package com.child1.ai_service.repo;
+
+import com.child1.ai_service.config.MongoConfig;
+import com.child1.ai_service.model.Recommendation;
+import com.child1.commonsecurity.testing.QueryPlanRecorder;
+import com.mongodb.client.MongoClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs every RecommendationRepo query against a real MongoDB and fails if {@link QueryPlanRecorder}
+ * finds a COLLSCAN in any of their winning plans.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RecommendationRepoIndexTest {
+
+    @Container
+    static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static final Long USER_ID = 7L;
+
+    private final QueryPlanRecorder queryPlans = new QueryPlanRecorder("find", "count", "delete", "update");
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private RecommendationRepo recommendationRepo;
+
+    @BeforeEach
+    void setUp() {
+        client = queryPlans.connect(MONGO.getConnectionString());
+        mongoTemplate = new MongoTemplate(client, "recommendation_index_test");
+        MongoConfig.ensureIndexes(mongoTemplate);
+        recommendationRepo = new MongoRepositoryFactory(mongoTemplate)
+                .getRepository(RecommendationRepo.class, new RecommendationRepoCustomImpl(mongoTemplate));
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 20; i++) {
+            Recommendation recommendation = new Recommendation();
+            recommendation.setActivityId("activity-" + i);
+            recommendation.setUserId(USER_ID + i % 3);
+            recommendation.setActivityType("RUNNING");
+            recommendation.setRecommendationText("Overall: steady");
+            recommendation.setActivityVersion((long) i);
+            recommendation.setCreatedAt(now.minusDays(i));
+            mongoTemplate.insert(recommendation);
+        }
+        queryPlans.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoTemplate.getDb().drop();
+        client.close();
+    }
+
+    @Test
+    void repositoryQueriesNeverScanTheCollection() {
+        PageRequest byCreatedAt = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "createdAt"));
+
+        recommendationRepo.findByUserId(USER_ID, byCreatedAt);
+        recommendationRepo.findByActivityId("activity-3", byCreatedAt);
+        recommendationRepo.findByUserIdAndActivityId(USER_ID, "activity-3", byCreatedAt);
+        recommendationRepo.findByActivityIdAndUserId("activity-3", USER_ID);
+        recommendationRepo.existsByActivityIdAndUserIdAndActivityVersionGreaterThan("activity-3", USER_ID, 1L);
+        recommendationRepo.deleteByUserIdAndActivityIdIn(USER_ID, List.of("activity-0", "activity-3"));
+        recommendationRepo.deleteByUserId(USER_ID + 1);
+
+        Recommendation stale = new Recommendation();
+        stale.setActivityId("activity-5");
+        stale.setUserId(USER_ID + 2);
+        stale.setActivityVersion(1L);
+        assertFalse(recommendationRepo.upsertIfNotStale(stale), "an older version overwrote a newer one");
+        stale.setActivityVersion(9L);
+        assertTrue(recommendationRepo.upsertIfNotStale(stale), "a newer version was dropped");
+        stale.setActivityVersion(null);
+        assertFalse(recommendationRepo.upsertIfNotStale(stale), "an unversioned write replaced a versioned one");
+
+        queryPlans.assertNoCollectionScans(mongoTemplate.getDb());
+    }
+}
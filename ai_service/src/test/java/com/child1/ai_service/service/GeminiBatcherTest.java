@@ -0,0 +1,53 @@
+package com.child1.ai_service.service;
+
+import com.child1.ai_service.model.ActivitType;
+import com.child1.ai_service.model.Activity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GeminiBatcherTest {
+
+    // What Gemini returns when it blocks the answer for safety reasons
+    private static final String BLOCKED_RESPONSE = """
+            {"candidates":[{"content":{"role":"model"},"finishReason":"SAFETY"}]}
+            """;
+
+    private final GeminiService geminiService = mock(GeminiService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GeminiBatcher batcher = new GeminiBatcher(geminiService, new GeminiResponseParser(new ObjectMapper()),
+            meterRegistry, 2, Duration.ofSeconds(5));
+
+    @Test
+    void blockedBatchFallsBackToSingleRequests() {
+        when(geminiService.generate(anyString())).thenReturn(Mono.just(BLOCKED_RESPONSE));
+
+        Mono<String> first = batcher.submit(activity("a1"), "prompt a1", prompt -> Mono.just("single a1"));
+        Mono<String> second = batcher.submit(activity("a2"), "prompt a2", prompt -> Mono.just("single a2"));
+
+        Tuple2<String, String> results = Mono.zip(first, second).block(Duration.ofSeconds(5));
+
+        assertThat(results.getT1()).isEqualTo("single a1");
+        assertThat(results.getT2()).isEqualTo("single a2");
+        assertThat(meterRegistry.get("ai.gemini.batch.fallbacks").counter().count()).isEqualTo(2);
+    }
+
+    private static Activity activity(String id) {
+        return Activity.builder()
+                .id(id)
+                .userId(42L)
+                .activityType(ActivitType.RUNNING)
+                .duration(30)
+                .caloriesBurned(300)
+                .build();
+    }
+}
@@ -0,0 +1,51 @@
+package com.child1.ai_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+class GeminiRateLimiterTest {
+
+    private GeminiRateLimiter limiter(double requestsPerMinute) {
+        return new GeminiRateLimiter(requestsPerMinute, 1_000_000, 1, 1, 1, 0.5, Duration.ofSeconds(5),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void cancelledWaiterDoesNotKeepTheSlot() {
+        GeminiRateLimiter limiter = limiter(1_000);
+        GeminiRateLimiter.Permit held = limiter.acquire(1).block();
+
+        Disposable waiting = limiter.acquire(1).subscribe();
+        waiting.dispose();
+        held.release(GeminiRateLimiter.Outcome.SUCCESS, null);
+
+        StepVerifier.create(limiter.acquire(1))
+                .expectNextCount(1)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void cancellingDuringTheRateLimitWaitReturnsTheSlot() {
+        GeminiRateLimiter limiter = limiter(1);
+        limiter.acquire(1).block().release(GeminiRateLimiter.Outcome.SUCCESS, null);
+
+        // The second request has to wait a minute for the request bucket while holding the only slot
+        StepVerifier.withVirtualTime(() -> limiter.acquire(1))
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(1))
+                .thenCancel()
+                .verify();
+
+        StepVerifier.withVirtualTime(() -> limiter.acquire(1))
+                .expectSubscription()
+                .thenAwait(Duration.ofMinutes(3))
+                .expectNextCount(1)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+}
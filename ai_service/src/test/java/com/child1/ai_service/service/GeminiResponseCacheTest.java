@@ -0,0 +1,53 @@
+package com.child1.ai_service.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class GeminiResponseCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GeminiResponseCache cache = new GeminiResponseCache(mock(MongoTemplate.class), meterRegistry,
+            true, false, 100, Duration.ofDays(7));
+
+    @Test
+    void concurrentMissesShareOneCall() {
+        Sinks.One<String> response = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+
+        Mono<String> first = cache.get("analyse  this", p -> {
+            calls.incrementAndGet();
+            return response.asMono();
+        });
+        Mono<String> second = cache.get("analyse this", p -> {
+            calls.incrementAndGet();
+            return response.asMono();
+        });
+        CompletableFuture<String> firstResult = first.toFuture();
+        CompletableFuture<String> secondResult = second.toFuture();
+        response.tryEmitValue("{\"analysis\":{}}");
+
+        assertThat(calls).hasValue(1);
+        assertThat(firstResult).isCompletedWithValue("{\"analysis\":{}}");
+        assertThat(secondResult).isCompletedWithValue("{\"analysis\":{}}");
+        assertThat(cache.get("analyse this", p -> Mono.error(new AssertionError("cached response expected"))).block())
+                .isEqualTo("{\"analysis\":{}}");
+    }
+
+    @Test
+    void failedCallIsNotShared() {
+        assertThat(cache.get("prompt", p -> Mono.error(new IllegalStateException("Gemini down")))
+                .onErrorReturn("fallback").block()).isEqualTo("fallback");
+
+        assertThat(cache.get("prompt", p -> Mono.just("answer")).block()).isEqualTo("answer");
+    }
+}
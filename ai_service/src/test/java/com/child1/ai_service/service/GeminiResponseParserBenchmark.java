@@ -0,0 +1,119 @@
+package com.child1.ai_service.service;
+
+import com.child1.ai_service.model.ActivitType;
+import com.child1.ai_service.model.Activity;
+import com.child1.ai_service.model.Recommendation;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and allocation per Gemini response: the old parsing (a new ObjectMapper per message, two
+ * trees and string slicing) against {@link GeminiResponseParser}, over recorded responses with and
+ * without code fences. Allocation per message is the {@code gc.alloc.rate.norm} line.
+ *
+ * Run {@link #main} from the IDE, or {@code java -cp <test classpath> org.openjdk.jmh.Main GeminiResponseParserBenchmark -prof gc}
+ * after {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeminiResponseParserBenchmark {
+
+    @Param({"plain-response.json", "fenced-response.json"})
+    public String payload;
+
+    private String response;
+    private Activity activity;
+    private GeminiResponseParser parser;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = GeminiResponseParserBenchmark.class.getResourceAsStream("/gemini/" + payload)) {
+            response = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        activity = Activity.builder()
+                .id("66f0c0ffee0000000000002a")
+                .userId(42L)
+                .activityType(ActivitType.RUNNING)
+                .duration(30)
+                .caloriesBurned(300)
+                .build();
+        parser = new GeminiResponseParser(new ObjectMapper());
+    }
+
+    @Benchmark
+    public Recommendation treePerMessage() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode partsNode = objectMapper.readTree(response).path("candidates").get(0).path("content").path("parts");
+        String cleanedText = partsNode.get(0).path("text").asText("").trim();
+        if (cleanedText.startsWith("```") && cleanedText.endsWith("```") && cleanedText.length() > 6) {
+            cleanedText = cleanedText.substring(3, cleanedText.length() - 3).trim();
+        }
+        cleanedText = cleanedText.substring(cleanedText.indexOf('{'), cleanedText.lastIndexOf('}') + 1);
+        JsonNode activityNode = objectMapper.readTree(cleanedText);
+        StringBuilder analysis = new StringBuilder();
+        JsonNode analysisNode = activityNode.path("analysis");
+        analysis.append("Overall: ").append(analysisNode.path("overall").asText("")).append("\n");
+        analysis.append("Pace: ").append(analysisNode.path("pace").asText("")).append("\n");
+        analysis.append("Heart Rate: ").append(analysisNode.path("heartRate").asText("")).append("\n");
+        analysis.append("Calories Burned: ").append(analysisNode.path("caloriesBurned").asText("")).append("\n");
+        List<String> improvements = new ArrayList<>();
+        for (JsonNode imp : activityNode.path("improvements")) {
+            improvements.add(imp.path("area").asText("") + ": " + imp.path("recommendation").asText(""));
+        }
+        List<String> suggestions = new ArrayList<>();
+        for (JsonNode sug : activityNode.path("suggestions")) {
+            suggestions.add(sug.path("workout").asText("") + ": " + sug.path("description").asText(""));
+        }
+        List<String> safety = new ArrayList<>();
+        for (JsonNode safe : activityNode.path("safety")) {
+            safety.add(safe.asText(""));
+        }
+        Recommendation recommendation = new Recommendation();
+        recommendation.setActivityId(activity.getId());
+        recommendation.setUserId(activity.getUserId());
+        recommendation.setActivityType(String.valueOf(activity.getActivityType()));
+        recommendation.setRecommendationText(analysis.toString().trim());
+        recommendation.setImprovements(improvements);
+        recommendation.setSuggestions(suggestions);
+        recommendation.setSafety(safety);
+        return recommendation;
+    }
+
+    @Benchmark
+    public Recommendation streaming() {
+        return parser.parse(activity, response);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GeminiResponseParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
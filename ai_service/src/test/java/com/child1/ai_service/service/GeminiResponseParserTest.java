@@ -0,0 +1,65 @@
+package com.child1.ai_service.service;
+
+import com.child1.ai_service.model.ActivitType;
+import com.child1.ai_service.model.Activity;
+import com.child1.ai_service.model.Recommendation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GeminiResponseParserTest {
+
+    private final GeminiResponseParser parser = new GeminiResponseParser(new ObjectMapper());
+
+    private final Activity activity = Activity.builder()
+            .id("66f0c0ffee0000000000002a")
+            .userId(42L)
+            .activityType(ActivitType.RUNNING)
+            .duration(30)
+            .caloriesBurned(300)
+            .build();
+
+    @Test
+    void malformedElementsAreSkipped() {
+        String text = """
+                ```json
+                {
+                  "analysis": {"overall": "Solid effort", "pace": 5.2, "heartRate": {"avg": 150}, "caloriesBurned": ["300"]},
+                  "improvements": ["Run longer", {"area": "Cadence", "recommendation": "Aim for 170 spm"}, 7],
+                  "suggestions": {"workout": "Tempo run", "description": {"minutes": 20}},
+                  "safety": [{"point": "Hydrate"}, "Warm up first", ["nested"]]
+                }
+                ```
+                """;
+
+        Recommendation recommendation = parser.parse(activity, text);
+
+        assertThat(recommendation.getRecommendationText()).isEqualTo("Overall: Solid effort\nPace: 5.2");
+        assertThat(recommendation.getImprovements()).containsExactly("Cadence: Aim for 170 spm");
+        assertThat(recommendation.getSuggestions()).containsExactly("Tempo run: ");
+        assertThat(recommendation.getSafety()).containsExactly("Warm up first");
+    }
+
+    @Test
+    void blockedPromptIsRejected() {
+        String blocked = """
+                {"promptFeedback":{"blockReason":"SAFETY","safetyRatings":[]},"modelVersion":"gemini-2.0-flash"}
+                """;
+
+        assertThatThrownBy(() -> parser.parse(activity, blocked))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("SAFETY");
+    }
+
+    @Test
+    void answerWithoutAnalysisIsRejected() {
+        String text = """
+                {"summary":"Nice run","improvements":[]}
+                """;
+
+        assertThatThrownBy(() -> parser.parse(activity, text))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,47 @@
+package com.child1.ai_service.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class MessageRetryHandlerTest {
+
+    private final RabbitTemplate rabbitTemplate = mock(RabbitTemplate.class);
+
+    private MessageRetryHandler handler(double jitter) {
+        MessageRetryHandler handler = new MessageRetryHandler(rabbitTemplate);
+        ReflectionTestUtils.setField(handler, "maxAttempts", 4);
+        ReflectionTestUtils.setField(handler, "initialDelayMs", 2000L);
+        ReflectionTestUtils.setField(handler, "multiplier", 2.0);
+        ReflectionTestUtils.setField(handler, "jitter", jitter);
+        handler.validate();
+        return handler;
+    }
+
+    @Test
+    void zeroJitterRetriesAfterTheExactDelay() {
+        MessageProperties properties = new MessageProperties();
+        properties.setConsumerQueue("activity-queue");
+
+        handler(0).retryOrDeadLetter(new Message(new byte[0], properties), new IllegalStateException("boom"));
+
+        ArgumentCaptor<Message> retry = ArgumentCaptor.forClass(Message.class);
+        verify(rabbitTemplate).send(eq(""), eq("activity-queue.retry.1"), retry.capture());
+        assertThat(retry.getValue().getMessageProperties().getExpiration()).isEqualTo("2000");
+    }
+
+    @Test
+    void jitterOutsideTheRangeFailsAtStartup() {
+        assertThatThrownBy(() -> handler(1.0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> handler(-0.1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
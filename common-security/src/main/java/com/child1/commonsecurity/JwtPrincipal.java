@@ -0,0 +1,10 @@
+package com.child1.commonsecurity;
+
+/**
+ * The authenticated caller carried by a verified token.
+ *
+ * @param userId   the {@code userId} claim
+ * @param username the token subject (the user's email)
+ */
+public record JwtPrincipal(Long userId, String username) {
+}
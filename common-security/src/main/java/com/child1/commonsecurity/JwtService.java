@@ -3,81 +3,82 @@ package com.child1.commonsecurity;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
-import jakarta.annotation.PostConstruct;
+import io.jsonwebtoken.io.Decoders;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
 import java.util.Date;
 
 
+/**
+ * Issues and verifies the platform's HS256 tokens.
+ *
+ * The signing key and the {@link JwtParser} are built once from {@code jwt.secret} (base64, as
+ * before) and shared; both are immutable and thread-safe. Nothing on the verification path logs.
+ */
 @Service
 public class JwtService {
 
-    private final String secretKey;
+    private final Key signingKey;
+    private final JwtParser parser;
     private final long expiration;
 
     public JwtService(
             @Value("${jwt.secret}") String secretKey,
             @Value("${jwt.expiration}") long expiration
     ) {
-        System.out.println("Initializing");
-        this.secretKey = secretKey;
+        this.signingKey = new SecretKeySpec(Decoders.BASE64.decode(secretKey), SignatureAlgorithm.HS256.getJcaName());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
         this.expiration = expiration;
     }
 
     public String generateToken(Long userId, String username) {
-        System.out.println("Generating token for user: " + username);
         if (userId == null || username == null || username.isEmpty()) {
             throw new IllegalArgumentException("User ID and username must not be null or empty");
         }
-        System.out.println("secretKey"+secretKey);
-        System.out.println("expiration"+expiration);
         return Jwts.builder()
                 .setSubject(username)
                 .claim("userId", userId)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(SignatureAlgorithm.HS256, secretKey)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verifies the token once and returns who it belongs to.
+     *
+     * @throws JwtException             if the signature, format or expiry is invalid
+     * @throws IllegalArgumentException if the token is null or empty
+     */
+    public JwtPrincipal parse(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        return new JwtPrincipal(claims.get("userId", Long.class), claims.getSubject());
+    }
+
     public boolean validateToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return false;
+        }
         try {
-            System.out.println("Validating token: " + token);
-            if (token == null || token.isEmpty()) {
-                System.out.println("Token is null or empty");
-                return false;
-            }
-            System.out.println("Using secretKey: " + secretKey);
-            System.out.println("Using expiration: " + expiration);
-            Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token);
+            parser.parseClaimsJws(token);
             return true;
-        } catch (JwtException e) {
+        } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
 
     public Long extractUserId(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(secretKey)
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.get("userId", Long.class);
+        return parse(token).userId();
     }
 
 
     public String extractUsername(String token) {
-        Claims claims = Jwts.parser()
-                .setSigningKey(secretKey)
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
-    }
-
-    @PostConstruct
-    public void checkEnv() {
-        System.out.println("JWT_SECRET: " + System.getenv("JWT_SECRET"));
+        return parse(token).username();
     }
 }
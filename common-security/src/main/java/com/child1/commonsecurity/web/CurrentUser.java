@@ -0,0 +1,18 @@
+package com.child1.commonsecurity.web;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a {@link com.child1.commonsecurity.JwtPrincipal} controller parameter to the caller
+ * resolved by {@link JwtPrincipalFilter}. Requests without a valid token are rejected with
+ * {@link InvalidTokenException}.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+}
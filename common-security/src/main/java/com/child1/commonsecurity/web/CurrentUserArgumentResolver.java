@@ -0,0 +1,34 @@
+package com.child1.commonsecurity.web;
+
+import com.child1.commonsecurity.JwtPrincipal;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Supplies {@link CurrentUser} {@link JwtPrincipal} parameters from the request attribute set by
+ * {@link JwtPrincipalFilter}, so controllers and services never parse the token themselves.
+ */
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && JwtPrincipal.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter,
+                                  ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest,
+                                  WebDataBinderFactory binderFactory) {
+        Object principal = webRequest.getAttribute(JwtPrincipalFilter.PRINCIPAL_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (!(principal instanceof JwtPrincipal jwtPrincipal) || jwtPrincipal.userId() == null) {
+            throw new InvalidTokenException("A valid Authorization token is required");
+        }
+        return jwtPrincipal;
+    }
+}
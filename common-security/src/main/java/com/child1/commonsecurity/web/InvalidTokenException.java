@@ -0,0 +1,7 @@
+package com.child1.commonsecurity.web;
+
+public class InvalidTokenException extends RuntimeException {
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+}
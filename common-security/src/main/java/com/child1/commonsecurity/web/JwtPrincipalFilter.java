@@ -0,0 +1,79 @@
+package com.child1.commonsecurity.web;
+
+import com.child1.commonsecurity.JwtPrincipal;
+import com.child1.commonsecurity.JwtService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Verifies the bearer token once per request and stores the resulting {@link JwtPrincipal}
+ * as a request attribute, where {@link CurrentUserArgumentResolver} picks it up.
+ *
+ * A missing or invalid token is not rejected here, so public endpoints keep working; only
+ * handlers that ask for a {@link CurrentUser} fail. Paths in
+ * {@code common.security.principal-filter.exclude-paths} are skipped entirely.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class JwtPrincipalFilter extends OncePerRequestFilter {
+
+    public static final String PRINCIPAL_ATTRIBUTE = JwtPrincipal.class.getName();
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtService jwtService;
+    private final List<String> excludePaths;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public JwtPrincipalFilter(JwtService jwtService,
+                              @Value("${common.security.principal-filter.exclude-paths:/api/v1/auth/**}") List<String> excludePaths) {
+        this.jwtService = jwtService;
+        this.excludePaths = excludePaths;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        for (String pattern : excludePaths) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws IOException, ServletException {
+        String token = extractToken(request.getHeader(HttpHeaders.AUTHORIZATION));
+        if (token != null) {
+            try {
+                request.setAttribute(PRINCIPAL_ATTRIBUTE, jwtService.parse(token));
+            } catch (RuntimeException e) {
+                // left unset; handlers that need a principal reject the request
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static String extractToken(String header) {
+        if (header == null) {
+            return null;
+        }
+        String token = header.startsWith(BEARER_PREFIX) ? header.substring(BEARER_PREFIX.length()) : header;
+        token = token.trim();
+        return token.isEmpty() ? null : token;
+    }
+}
@@ -0,0 +1,65 @@
+package com.child1.commonsecurity;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens verified per second: a parser rebuilt on every call (the old JwtService, which also
+ * parsed once for the user id and again for the username) against the shared parser.
+ *
+ * Run {@link #main} from the IDE, or {@code java -cp <test classpath> org.openjdk.jmh.Main JwtServiceBenchmark}
+ * after {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "Zml0bmVzdC1iZW5jaG1hcmstc2VjcmV0LWtleS0yNTYtYml0cy1sb25nLW9r";
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRET, 3_600_000L);
+        token = jwtService.generateToken(42L, "runner@example.com");
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public JwtPrincipal perCallParser() {
+        Claims idClaims = Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+        Claims subjectClaims = Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+        return new JwtPrincipal(idClaims.get("userId", Long.class), subjectClaims.getSubject());
+    }
+
+    @Benchmark
+    public JwtPrincipal sharedParser() {
+        return jwtService.parse(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
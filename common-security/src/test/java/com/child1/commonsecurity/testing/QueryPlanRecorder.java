@@ -0,0 +1,103 @@
+package com.child1.commonsecurity.testing;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Captures the commands a MongoDB client sends and explains each one, so a repository test can
+ * fail when any of its queries is answered by a collection scan.
+ *
+ * Shipped in the common-security test-jar; services pull it in with
+ * {@code <type>test-jar</type>} and only supply their own fixtures and queries.
+ */
+public class QueryPlanRecorder implements CommandListener {
+
+    private final List<String> commandNames;
+    private final List<BsonDocument> issuedCommands = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param commandNames the commands to capture, e.g. {@code find}, {@code count}, {@code delete}
+     */
+    public QueryPlanRecorder(String... commandNames) {
+        this.commandNames = List.of(commandNames);
+    }
+
+    /**
+     * Opens a client that reports its commands to this recorder.
+     */
+    public MongoClient connect(String connectionString) {
+        return MongoClients.create(MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(connectionString))
+                .addCommandListener(this)
+                .build());
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (commandNames.contains(event.getCommandName())) {
+            issuedCommands.add(event.getCommand().clone());
+        }
+    }
+
+    /**
+     * Forgets what was captured so far, typically the fixture inserts.
+     */
+    public void clear() {
+        issuedCommands.clear();
+    }
+
+    /**
+     * Explains every captured command against {@code database} and fails if none was captured or
+     * any winning plan contains a COLLSCAN.
+     */
+    public void assertNoCollectionScans(MongoDatabase database) {
+        assertFalse(issuedCommands.isEmpty(), "no commands were captured");
+        for (BsonDocument command : issuedCommands) {
+            Document explained = explain(database, command);
+            assertFalse(containsCollectionScan(explained), () -> "COLLSCAN for " + command.toJson());
+        }
+    }
+
+    private static Document explain(MongoDatabase database, BsonDocument command) {
+        BsonDocument explainable = command.clone();
+        for (String key : List.of("lsid", "$db", "$clusterTime", "$readPreference", "txnNumber")) {
+            explainable.remove(key);
+        }
+        return database.runCommand(new BsonDocument("explain", explainable)
+                .append("verbosity", new BsonString("queryPlanner")));
+    }
+
+    private static boolean containsCollectionScan(Object node) {
+        if (node instanceof Map<?, ?> map) {
+            if ("COLLSCAN".equals(map.get("stage"))) {
+                return true;
+            }
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!"rejectedPlans".equals(entry.getKey()) && containsCollectionScan(entry.getValue())) {
+                    return true;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object item : list) {
+                if (containsCollectionScan(item)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -22,21 +22,20 @@ import java.time.LocalDateTime;
 @Component
 public class AuthFilter implements GlobalFilter, Ordered {
 
-    private final WebClient.Builder webClientBuilder;
+    private final TokenValidator tokenValidator;
 
     @Value("${common.internal-secret}")
     private String internalSecret;  // loaded from env variable
 
 
 
-    public AuthFilter(WebClient.Builder webClientBuilder) {
-        this.webClientBuilder = webClientBuilder;
+    public AuthFilter(TokenValidator tokenValidator) {
+        this.tokenValidator = tokenValidator;
     }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         String path = exchange.getRequest().getURI().getPath();
-        System.out.println("Request path: " + path);
         if (path.startsWith("/api/v1/auth")) {
             return chain.filter(exchange);
         }
@@ -48,34 +47,20 @@ public class AuthFilter implements GlobalFilter, Ordered {
 
         String token = authHeader.substring(7);
 
-
-        System.out.println("Extracted token: " + token);
         if (token.isEmpty()) {
             return writeErrorResponse(exchange, HttpStatus.UNAUTHORIZED, "Unauthorized", "Token is empty");
         }
 
-        System.out.println("Internal secret: " + internalSecret);
-        return webClientBuilder.build()
-                .get()
-                .uri("http://auth-service/api/v1/auth/validate")
-                .header(HttpHeaders.AUTHORIZATION, token)
-                .exchangeToMono(response -> {
-                    if (response.statusCode().is2xxSuccessful()) {
-                        return response.bodyToMono(Map.class)
-                                .flatMap(body -> {
-                                    Boolean isValid = (Boolean) body.get("valid");
-                                    if (Boolean.TRUE.equals(isValid)) {
-                                        ServerWebExchange mutatedExchange = exchange.mutate()
-                                                .request(r -> r.headers(headers ->
-                                                        headers.add("X-Internal-Auth", internalSecret)))
-                                                .build();
-                                        return chain.filter(mutatedExchange);
-                                    }
-                                    return writeErrorResponse(exchange, HttpStatus.UNAUTHORIZED, "Unauthorized", "Invalid token");
-                                });
-                    } else {
-                        return writeErrorResponse(exchange, HttpStatus.UNAUTHORIZED, "Unauthorized", "Token validation failed");
+        return tokenValidator.validate(token)
+                .flatMap(isValid -> {
+                    if (isValid) {
+                        ServerWebExchange mutatedExchange = exchange.mutate()
+                                .request(r -> r.headers(headers ->
+                                        headers.add("X-Internal-Auth", internalSecret)))
+                                .build();
+                        return chain.filter(mutatedExchange);
                     }
+                    return writeErrorResponse(exchange, HttpStatus.UNAUTHORIZED, "Unauthorized", "Invalid token");
                 });
     }
 
@@ -2,9 +2,13 @@ package com.child1.gateway;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ComponentScan;
 
 @SpringBootApplication
-
+@ComponentScan(basePackages = {
+        "com.child1.gateway",
+        "com.child1.commonsecurity"    // JwtService for local token verification
+})
 public class GatewayApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,158 @@
+package com.child1.gateway;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Remembers auth-service verdicts so repeated requests with the same bearer token
+ * (dashboard polling, page loads) do not each cost a validate call.
+ *
+ * Entries are keyed by a SHA-256 of the token, never the token itself. A valid verdict lives
+ * until the token's {@code exp} (capped by {@code gateway.auth.cache.max-ttl}); an invalid one
+ * only for {@code gateway.auth.cache.negative-ttl}. Hit/miss/eviction counts are published
+ * under {@code gateway.auth.tokens} on {@code /actuator/metrics}.
+ *
+ * Concurrent misses for the same token share one pending lookup instead of each calling
+ * auth-service; the calls saved that way are counted in {@code gateway.auth.validation.coalesced}.
+ */
+@Component
+public class TokenValidationCache {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Cache<String, CachedVerdict> cache;
+    private final ConcurrentMap<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+    private final long maxTtlNanos;
+    private final long negativeTtlNanos;
+
+    public TokenValidationCache(
+            @Value("${gateway.auth.cache.max-size:10000}") long maxSize,
+            @Value("${gateway.auth.cache.max-ttl:5m}") Duration maxTtl,
+            @Value("${gateway.auth.cache.negative-ttl:30s}") Duration negativeTtl,
+            MeterRegistry meterRegistry) {
+        this.maxTtlNanos = maxTtl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new VerdictExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway.auth.tokens");
+        this.coalesced = Counter.builder("gateway.auth.validation.coalesced")
+                .description("Token validations that joined an in-flight auth-service call instead of making their own")
+                .register(meterRegistry);
+    }
+
+    public Mono<Boolean> get(String token, Function<String, Mono<Boolean>> loader) {
+        return Mono.defer(() -> {
+            String key = hash(token);
+            CachedVerdict cached = cache.getIfPresent(key);
+            if (cached != null) {
+                return Mono.just(cached.valid);
+            }
+            // Other callers may still be waiting on the shared lookup, so cancelling must not stop it
+            return Mono.fromFuture(pending(key, token, loader), true);
+        });
+    }
+
+    // Joins the lookup already running for the token, or starts one that leaves inFlight once it completes
+    private CompletableFuture<Boolean> pending(String key, String token, Function<String, Mono<Boolean>> loader) {
+        CompletableFuture<Boolean> running = inFlight.get(key);
+        if (running != null) {
+            coalesced.increment();
+            return running;
+        }
+        CompletableFuture<Boolean> started = inFlight.computeIfAbsent(key, k -> loader.apply(token)
+                .doOnNext(valid -> cache.put(key, new CachedVerdict(valid, ttlFor(token, valid))))
+                .toFuture());
+        started.whenComplete((valid, e) -> inFlight.remove(key, started));
+        return started;
+    }
+
+    private long ttlFor(String token, boolean valid) {
+        if (!valid) {
+            return negativeTtlNanos;
+        }
+        long expiresAtMillis = expiryOf(token);
+        if (expiresAtMillis <= 0) {
+            return Math.min(negativeTtlNanos, maxTtlNanos);
+        }
+        long remaining = Duration.ofMillis(expiresAtMillis - System.currentTimeMillis()).toNanos();
+        return Math.max(0, Math.min(remaining, maxTtlNanos));
+    }
+
+    /**
+     * Reads {@code exp} from the token payload without checking the signature; it is only used
+     * to bound how long a verdict already given by auth-service is kept.
+     */
+    private static long expiryOf(String token) {
+        int first = token.indexOf('.');
+        int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+        if (second < 0) {
+            return -1;
+        }
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(token.substring(first + 1, second));
+            JsonNode exp = OBJECT_MAPPER.readTree(payload).get("exp");
+            return exp != null && exp.canConvertToLong() ? exp.asLong() * 1000 : -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class CachedVerdict {
+        private final boolean valid;
+        private final long ttlNanos;
+
+        private CachedVerdict(boolean valid, long ttlNanos) {
+            this.valid = valid;
+            this.ttlNanos = ttlNanos;
+        }
+    }
+
+    private static final class VerdictExpiry implements Expiry<String, CachedVerdict> {
+        @Override
+        public long expireAfterCreate(String key, CachedVerdict value, long currentTime) {
+            return value.ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedVerdict value, long currentTime, long currentDuration) {
+            return value.ttlNanos;
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedVerdict value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
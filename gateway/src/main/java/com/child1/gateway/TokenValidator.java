@@ -0,0 +1,106 @@
+package com.child1.gateway;
+
+import com.child1.commonsecurity.JwtService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether a bearer token may pass the gateway.
+ *
+ * In {@code local} mode (the default) the signature and expiry are checked in-process with the
+ * shared {@link JwtService}; auth-service is only asked when {@code gateway.auth.revocation-check}
+ * is enabled, and only for tokens that already passed the local check. {@code remote} mode keeps
+ * the old behaviour of asking auth-service for every request.
+ *
+ * Remote verdicts are kept in {@link TokenValidationCache}, so a token only reaches
+ * auth-service again once its cached verdict has expired.
+ *
+ * Both paths are timed under {@code gateway.auth.validation}, tagged by {@code mode}, so the two
+ * can be compared on {@code /actuator/metrics}.
+ */
+@Component
+public class TokenValidator {
+
+    static final String METRIC_NAME = "gateway.auth.validation";
+    private static final String VALIDATE_URI = "http://auth-service/api/v1/auth/validate";
+
+    private final JwtService jwtService;
+    private final TokenValidationCache cache;
+    private final WebClient authClient;
+    private final MeterRegistry meterRegistry;
+    private final Timer localValid;
+    private final Timer localInvalid;
+    private final Timer remoteValid;
+    private final Timer remoteInvalid;
+
+    @Value("${gateway.auth.mode:local}")
+    private String mode;
+
+    @Value("${gateway.auth.revocation-check:false}")
+    private boolean revocationCheck;
+
+    public TokenValidator(JwtService jwtService, TokenValidationCache cache,
+                          WebClient.Builder webClientBuilder, MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.cache = cache;
+        this.authClient = webClientBuilder.build();
+        this.meterRegistry = meterRegistry;
+        this.localValid = timer("local", "valid");
+        this.localInvalid = timer("local", "invalid");
+        this.remoteValid = timer("remote", "valid");
+        this.remoteInvalid = timer("remote", "invalid");
+    }
+
+    public Mono<Boolean> validate(String token) {
+        if ("remote".equalsIgnoreCase(mode)) {
+            return cache.get(token, this::validateRemotely);
+        }
+        boolean valid = validateLocally(token);
+        if (!valid || !revocationCheck) {
+            return Mono.just(valid);
+        }
+        return cache.get(token, this::validateRemotely);
+    }
+
+    boolean validateLocally(String token) {
+        long start = System.nanoTime();
+        boolean valid = jwtService.validateToken(token);
+        (valid ? localValid : localInvalid).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return valid;
+    }
+
+    Mono<Boolean> validateRemotely(String token) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return authClient.get()
+                    .uri(VALIDATE_URI)
+                    .header(HttpHeaders.AUTHORIZATION, token)
+                    .exchangeToMono(response -> {
+                        if (!response.statusCode().is2xxSuccessful()) {
+                            return response.releaseBody().thenReturn(false);
+                        }
+                        return response.bodyToMono(Map.class)
+                                .map(body -> Boolean.TRUE.equals(body.get("valid")))
+                                .defaultIfEmpty(false);
+                    })
+                    .doOnNext(valid -> sample.stop(valid ? remoteValid : remoteInvalid));
+        });
+    }
+
+    private Timer timer(String validationMode, String result) {
+        return Timer.builder(METRIC_NAME)
+                .description("Time spent validating bearer tokens at the gateway")
+                .tag("mode", validationMode)
+                .tag("result", result)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
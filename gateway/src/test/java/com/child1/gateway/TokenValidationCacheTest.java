@@ -0,0 +1,47 @@
+package com.child1.gateway;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenValidationCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenValidationCache cache = new TokenValidationCache(100, Duration.ofMinutes(5), Duration.ofSeconds(30), meterRegistry);
+
+    @Test
+    void concurrentMissesShareOneLookup() {
+        Sinks.One<Boolean> verdict = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+
+        Mono<Boolean> first = cache.get("token", t -> {
+            calls.incrementAndGet();
+            return verdict.asMono();
+        });
+        Mono<Boolean> second = cache.get("token", t -> {
+            calls.incrementAndGet();
+            return verdict.asMono();
+        });
+        first.subscribe();
+        second.subscribe();
+        verdict.tryEmitValue(false);
+
+        assertThat(calls).hasValue(1);
+        assertThat(meterRegistry.get("gateway.auth.validation.coalesced").counter().count()).isEqualTo(1);
+        assertThat(cache.get("token", t -> Mono.error(new AssertionError("cached verdict expected"))).block()).isFalse();
+    }
+
+    @Test
+    void failedLookupIsNotShared() {
+        assertThat(cache.get("token", t -> Mono.error(new IllegalStateException("auth-service down")))
+                .onErrorReturn(true).block()).isTrue();
+
+        assertThat(cache.get("token", t -> Mono.just(false)).block()).isFalse();
+    }
+}